@@ -0,0 +1,235 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.grid.benchmark;
+
+import static org.mockito.Mockito.mock;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.grid.Grid;
+import com.vaadin.flow.component.grid.Grid.SelectionMode;
+import com.vaadin.flow.component.html.Span;
+import com.vaadin.flow.data.renderer.TemplateRenderer;
+import com.vaadin.flow.server.VaadinSession;
+
+/**
+ * Base class for benchmarks measuring the server-side cost of sending one
+ * page of rows to the client: data generators, renderers, key mapping and the
+ * update queue.
+ * <p>
+ * The grid is attached to a UI with a mocked session, the same way as in the
+ * unit tests, and each operation runs one simulated client response. Run with
+ * {@code -prof gc} to get the allocation per page ({@code gc.alloc.rate.norm}).
+ *
+ * @author Vaadin Ltd.
+ *
+ * @param <G>
+ *            the type of the benchmarked grid
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public abstract class AbstractRowSerializationBenchmark<G extends Grid<SyntheticBean>> {
+
+    /**
+     * The number of columns in the grid.
+     */
+    @Param({ "5", "20", "50" })
+    public int columnCount;
+
+    /**
+     * The renderers used for the columns.
+     */
+    @Param({ "TEXT", "TEMPLATE", "COMPONENT", "MIXED" })
+    public RendererMix rendererMix;
+
+    /**
+     * Whether multi selection, item details and class name generators are
+     * enabled.
+     */
+    @Param({ "false", "true" })
+    public boolean rowFeatures;
+
+    protected G grid;
+    protected int pageSize;
+
+    private UI ui;
+    private int pageCount;
+    private int page;
+    private int updateId;
+
+    /**
+     * Creates the grid, attaches it and sends the first page once.
+     */
+    protected void setUpGrid() {
+        ui = new UI();
+        ui.getInternals().setSession(mock(VaadinSession.class));
+
+        grid = createGrid();
+        pageSize = grid.getPageSize();
+        addColumns();
+        if (rowFeatures) {
+            addRowFeatures();
+        }
+        pageCount = Math.max(1, getRowCount() / pageSize);
+
+        ui.add(grid);
+        grid.getDataCommunicator().setRequestedRange(0, pageSize);
+        roundTrip(null);
+    }
+
+    /**
+     * Creates the grid with its data, without columns.
+     *
+     * @return the created grid
+     */
+    protected abstract G createGrid();
+
+    /**
+     * Gets the number of rows the client could scroll through.
+     *
+     * @return the number of rows
+     */
+    protected abstract int getRowCount();
+
+    /**
+     * Adds the given value column to the grid.
+     *
+     * @param propertyIndex
+     *            the index of the bean property to show
+     */
+    protected void addTextColumn(int propertyIndex) {
+        grid.addColumn(bean -> bean.getValue(propertyIndex));
+    }
+
+    private void addColumns() {
+        for (int i = getFirstAddedColumn(); i < columnCount; i++) {
+            int index = i;
+            switch (rendererMix.forColumn(i)) {
+            case TEMPLATE:
+                grid.addColumn(TemplateRenderer
+                        .<SyntheticBean> of("<b>[[item.value]]</b>")
+                        .withProperty("value", bean -> bean.getValue(index)));
+                break;
+            case COMPONENT:
+                grid.addComponentColumn(
+                        bean -> new Span(bean.getValue(index)));
+                break;
+            default:
+                addTextColumn(index);
+            }
+        }
+    }
+
+    /**
+     * Gets the index of the first column added by this class, allowing
+     * subclasses to add their own columns first.
+     *
+     * @return the index of the first column to add
+     */
+    protected int getFirstAddedColumn() {
+        return 0;
+    }
+
+    private void addRowFeatures() {
+        grid.setSelectionMode(SelectionMode.MULTI);
+        grid.setClassNameGenerator(
+                bean -> bean.getId() % 2 == 0 ? "even" : null);
+        grid.getColumns().get(0).setClassNameGenerator(
+                bean -> bean.getId() % 3 == 0 ? "third" : null);
+        grid.setItemDetailsRenderer(TemplateRenderer
+                .<SyntheticBean> of("<div>[[item.details]]</div>")
+                .withProperty("details", bean -> bean.getValue(0)));
+        forEachRowFeatureItem(bean -> {
+            if (bean.getId() % 2 == 0) {
+                grid.select(bean);
+            }
+            if (bean.getId() % 10 == 0) {
+                grid.setDetailsVisible(bean, true);
+            }
+        });
+    }
+
+    /**
+     * Runs the given action for the items that may get selected or have
+     * their details opened.
+     *
+     * @param action
+     *            the action to run
+     */
+    protected abstract void forEachRowFeatureItem(
+            Consumer<SyntheticBean> action);
+
+    /**
+     * Resends the currently requested page as after a data provider refresh.
+     *
+     * @param blackhole
+     *            the blackhole consuming the generated changes
+     */
+    protected void resendPage(Blackhole blackhole) {
+        grid.getDataCommunicator().reset();
+        roundTrip(blackhole);
+    }
+
+    /**
+     * Requests the next page as when the client scrolls, wrapping around at
+     * the end of the data.
+     *
+     * @param blackhole
+     *            the blackhole consuming the generated changes
+     */
+    protected void scrollPage(Blackhole blackhole) {
+        page = (page + 1) % pageCount;
+        grid.getDataCommunicator().setRequestedRange(page * pageSize,
+                pageSize);
+        roundTrip(blackhole);
+    }
+
+    /*
+     * Simulates one server response followed by the client acknowledging the
+     * update, so that passivated keys are released as in a real session.
+     */
+    private void roundTrip(Blackhole blackhole) {
+        ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+        ui.getInternals().getStateTree().collectChanges(change -> {
+            if (blackhole != null) {
+                blackhole.consume(change);
+            }
+        });
+        Object invocations = ui.getInternals()
+                .dumpPendingJavaScriptInvocations();
+        if (blackhole != null) {
+            blackhole.consume(invocations);
+        }
+        grid.getDataCommunicator().confirmUpdate(updateId++);
+    }
+}
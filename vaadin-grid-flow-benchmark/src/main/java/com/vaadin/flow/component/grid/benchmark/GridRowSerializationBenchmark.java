@@ -0,0 +1,75 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.grid.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.vaadin.flow.component.grid.Grid;
+
+/**
+ * Measures sending pages of a flat {@link Grid} to the client.
+ *
+ * @author Vaadin Ltd.
+ */
+public class GridRowSerializationBenchmark
+        extends AbstractRowSerializationBenchmark<Grid<SyntheticBean>> {
+
+    private static final int ROW_COUNT = 1000;
+
+    private List<SyntheticBean> items;
+
+    @Setup
+    public void setUp() {
+        items = new ArrayList<>(ROW_COUNT);
+        for (int i = 0; i < ROW_COUNT; i++) {
+            items.add(new SyntheticBean(i, columnCount));
+        }
+        setUpGrid();
+    }
+
+    @Override
+    protected Grid<SyntheticBean> createGrid() {
+        Grid<SyntheticBean> grid = new Grid<>();
+        grid.setItems(items);
+        return grid;
+    }
+
+    @Override
+    protected int getRowCount() {
+        return ROW_COUNT;
+    }
+
+    @Override
+    protected void forEachRowFeatureItem(Consumer<SyntheticBean> action) {
+        items.forEach(action);
+    }
+
+    @Benchmark
+    public void resendPage(Blackhole blackhole) {
+        super.resendPage(blackhole);
+    }
+
+    @Benchmark
+    public void scrollPage(Blackhole blackhole) {
+        super.scrollPage(blackhole);
+    }
+}
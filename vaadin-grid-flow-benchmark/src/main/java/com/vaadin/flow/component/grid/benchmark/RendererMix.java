@@ -0,0 +1,54 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.grid.benchmark;
+
+/**
+ * The renderers used for the columns of a benchmarked grid.
+ *
+ * @author Vaadin Ltd.
+ */
+public enum RendererMix {
+    /**
+     * Plain value provider columns, rendered with a column path renderer.
+     */
+    TEXT,
+    /**
+     * Template renderer columns with one property each.
+     */
+    TEMPLATE,
+    /**
+     * Component renderer columns.
+     */
+    COMPONENT,
+    /**
+     * Text, template and component columns in turns.
+     */
+    MIXED;
+
+    /**
+     * Gets the renderer type to use for the column with the given index.
+     *
+     * @param columnIndex
+     *            the index of the column
+     * @return the renderer type of the column, never {@link #MIXED}
+     */
+    public RendererMix forColumn(int columnIndex) {
+        if (this != MIXED) {
+            return this;
+        }
+        return values()[columnIndex % 3];
+    }
+}
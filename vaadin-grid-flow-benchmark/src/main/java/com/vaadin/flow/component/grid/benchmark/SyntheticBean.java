@@ -0,0 +1,59 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.grid.benchmark;
+
+/**
+ * Bean with a configurable number of precomputed string properties, so that
+ * the benchmarks measure the grid rather than the value providers.
+ *
+ * @author Vaadin Ltd.
+ */
+public class SyntheticBean {
+
+    private final int id;
+    private final String[] values;
+
+    /**
+     * Creates a bean with the given id and number of properties.
+     *
+     * @param id
+     *            the id of the bean
+     * @param propertyCount
+     *            the number of properties to generate
+     */
+    public SyntheticBean(int id, int propertyCount) {
+        this.id = id;
+        values = new String[propertyCount];
+        for (int i = 0; i < propertyCount; i++) {
+            values[i] = "Item " + id + " / " + i;
+        }
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Gets the value of the property with the given index.
+     *
+     * @param index
+     *            the index of the property
+     * @return the property value
+     */
+    public String getValue(int index) {
+        return values[index];
+    }
+}
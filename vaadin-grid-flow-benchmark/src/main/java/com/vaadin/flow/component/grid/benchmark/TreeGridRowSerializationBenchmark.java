@@ -0,0 +1,97 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.grid.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.vaadin.flow.component.treegrid.TreeGrid;
+import com.vaadin.flow.data.provider.hierarchy.TreeData;
+import com.vaadin.flow.data.provider.hierarchy.TreeDataProvider;
+
+/**
+ * Measures sending pages of an expanded {@link TreeGrid} to the client. The
+ * first column is the hierarchy column.
+ *
+ * @author Vaadin Ltd.
+ */
+public class TreeGridRowSerializationBenchmark extends
+        AbstractRowSerializationBenchmark<TreeGrid<SyntheticBean>> {
+
+    private static final int ROOT_COUNT = 100;
+    private static final int CHILD_COUNT = 9;
+
+    private TreeData<SyntheticBean> treeData;
+    private List<SyntheticBean> roots;
+
+    @Setup
+    public void setUp() {
+        treeData = new TreeData<>();
+        roots = new ArrayList<>(ROOT_COUNT);
+        int id = 0;
+        for (int i = 0; i < ROOT_COUNT; i++) {
+            SyntheticBean root = new SyntheticBean(id++, columnCount);
+            roots.add(root);
+            treeData.addItem(null, root);
+            for (int j = 0; j < CHILD_COUNT; j++) {
+                treeData.addItem(root, new SyntheticBean(id++, columnCount));
+            }
+        }
+        setUpGrid();
+    }
+
+    @Override
+    protected TreeGrid<SyntheticBean> createGrid() {
+        TreeGrid<SyntheticBean> grid = new TreeGrid<>();
+        grid.setDataProvider(new TreeDataProvider<>(treeData));
+        grid.addHierarchyColumn(bean -> bean.getValue(0));
+        grid.expand(roots);
+        return grid;
+    }
+
+    @Override
+    protected int getFirstAddedColumn() {
+        return 1;
+    }
+
+    @Override
+    protected int getRowCount() {
+        return ROOT_COUNT * (CHILD_COUNT + 1);
+    }
+
+    @Override
+    protected void forEachRowFeatureItem(Consumer<SyntheticBean> action) {
+        roots.forEach(root -> {
+            action.accept(root);
+            treeData.getChildren(root).forEach(action);
+        });
+    }
+
+    @Benchmark
+    public void resendPage(Blackhole blackhole) {
+        super.resendPage(blackhole);
+    }
+
+    @Benchmark
+    public void scrollPage(Blackhole blackhole) {
+        super.scrollPage(blackhole);
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.treegrid.it;
+
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.vaadin.flow.component.html.Div;
+import com.vaadin.flow.component.treegrid.TreeGrid;
+import com.vaadin.flow.data.bean.HierarchicalTestBean;
+import com.vaadin.flow.router.Route;
+
+@Route("treegrid-page-cache-limit")
+public class TreeGridPageCacheLimitPage extends Div {
+
+    public static final int NODES = 20;
+    public static final int PAGE_CACHE_LIMIT = 3;
+
+    public TreeGridPageCacheLimitPage() {
+        TreeGrid<HierarchicalTestBean> grid = new TreeGrid<>();
+        grid.setId("treegrid");
+        grid.setSizeFull();
+        grid.addHierarchyColumn(HierarchicalTestBean::toString)
+                .setHeader("String").setId("string");
+        grid.setDataProvider(new LazyHierarchicalDataProvider(NODES, 1));
+        // Each expanded item has one page of children
+        grid.setPageCacheLimit(PAGE_CACHE_LIMIT);
+        grid.expand(IntStream.range(0, NODES)
+                .mapToObj(index -> new HierarchicalTestBean(null, 0, index))
+                .collect(Collectors.toList()));
+        add(grid);
+        setSizeFull();
+    }
+}
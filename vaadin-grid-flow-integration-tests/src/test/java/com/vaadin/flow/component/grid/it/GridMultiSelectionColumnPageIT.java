@@ -15,10 +15,14 @@
  */
 package com.vaadin.flow.component.grid.it;
 
+import java.util.List;
+
 import org.junit.Assert;
 import org.junit.Test;
 import org.openqa.selenium.By;
+import org.openqa.selenium.Keys;
 import org.openqa.selenium.WebElement;
+import org.openqa.selenium.interactions.Actions;
 
 import com.vaadin.flow.testutil.AbstractComponentIT;
 import com.vaadin.flow.testutil.TestPath;
@@ -66,6 +70,28 @@ public class GridMultiSelectionColumnPageIT extends AbstractComponentIT {
                 message.getText());
     }
 
+    @Test
+    public void shiftClickCheckbox_rangeSelected() {
+        open();
+        WebElement grid = findElement(By.id("in-memory-grid"));
+        List<WebElement> checkboxes = grid
+                .findElements(By.tagName("vaadin-checkbox"));
+        WebElement message = findElement(By.id("selected-item-count"));
+
+        checkboxes.get(2).click();
+        Assert.assertEquals("Selected item count: 1", message.getText());
+
+        new Actions(getDriver()).keyDown(Keys.SHIFT)
+                .click(checkboxes.get(6)).keyUp(Keys.SHIFT).perform();
+
+        Assert.assertEquals("Selected item count: 5", message.getText());
+        for (int i = 2; i <= 6; i++) {
+            Assert.assertEquals("Item " + i + " should be selected", "true",
+                    checkboxes.get(i).getAttribute("checked"));
+        }
+        Assert.assertNull(checkboxes.get(7).getAttribute("checked"));
+    }
+
     @Test
     public void selectCheckboxMultiSelectionMode() {
         open();
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.treegrid.it;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.flow.testutil.TestPath;
+
+import static com.vaadin.flow.component.treegrid.it.TreeGridPageCacheLimitPage.NODES;
+
+@TestPath("treegrid-page-cache-limit")
+public class TreeGridPageCacheLimitIT extends AbstractTreeGridIT {
+
+    // Each expanded item is followed by its children
+    private static final int ROWS_PER_ITEM = NODES + 1;
+
+    @Before
+    public void before() {
+        open();
+        setupTreeGrid();
+    }
+
+    @Test
+    public void limitExceeded_scrollBack_evictedChildrenShownAgain() {
+        Assert.assertEquals(NODES * ROWS_PER_ITEM,
+                getTreeGrid().getRowCount());
+
+        // Loads the children of all expanded items, more pages than the limit
+        for (int item = 0; item < NODES; item++) {
+            assertChildrenShown(item);
+        }
+
+        // The children of the first items have been evicted by now
+        for (int item = NODES - 1; item >= 0; item--) {
+            assertChildrenShown(item);
+        }
+    }
+
+    private void assertChildrenShown(int item) {
+        int row = item * ROWS_PER_ITEM;
+        assertCellTexts(row, 0, "0 | " + item, "1 | 0", "1 | 1");
+        assertCellTexts(row + NODES, 0, "1 | " + (NODES - 1));
+    }
+}
@@ -79,12 +79,10 @@ abstract class AbstractColumn<T extends AbstractColumn<T>> extends Component
     /**
      * {@inheritDoc}
      * <p>
-     * Note that column related data is sent to the client side even if the
-     * column is invisible. Use {@link Grid#removeColumn(Column)} to remove
-     * column (or don't add the column all) and avoid sending extra data.
+     * The data of an invisible column is not sent to the client side. When
+     * the column is made visible again, its data is sent for the rows that
+     * are already loaded on the client.
      * </p>
-     *
-     * @see Grid#removeColumn(Column)
      */
     @Override
     public void setVisible(boolean visible) {
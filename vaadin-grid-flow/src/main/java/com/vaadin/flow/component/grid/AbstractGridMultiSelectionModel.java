@@ -32,6 +32,7 @@ import com.vaadin.flow.component.AbstractField.ComponentValueChangeEvent;
 import com.vaadin.flow.component.ComponentEventListener;
 import com.vaadin.flow.component.ComponentUtil;
 import com.vaadin.flow.component.grid.Grid.AbstractGridExtension;
+import com.vaadin.flow.data.provider.DataChangeEvent.DataRefreshEvent;
 import com.vaadin.flow.data.provider.DataProvider;
 import com.vaadin.flow.data.provider.Query;
 import com.vaadin.flow.data.provider.hierarchy.HierarchicalDataProvider;
@@ -42,6 +43,8 @@ import com.vaadin.flow.data.selection.MultiSelectionListener;
 import com.vaadin.flow.data.selection.SelectionEvent;
 import com.vaadin.flow.data.selection.SelectionListener;
 import com.vaadin.flow.dom.Element;
+import com.vaadin.flow.function.SerializableFunction;
+import com.vaadin.flow.function.SerializableSupplier;
 import com.vaadin.flow.shared.Registration;
 
 import elemental.json.JsonObject;
@@ -56,10 +59,25 @@ import elemental.json.JsonObject;
 public abstract class AbstractGridMultiSelectionModel<T>
         extends AbstractGridExtension<T> implements GridMultiSelectionModel<T> {
 
-    private final Set<T> selected;
+    /**
+     * Selected items keyed by their data provider id, in selection order. The
+     * id-keyed storage keeps membership checks constant-time regardless of the
+     * selection size, and its snapshots let selection events expose the old
+     * selection without copying it up front. After select all, it only keeps
+     * track of the items deselected since.
+     */
+    private final MultiSelectionState<T> selected;
     private final GridSelectionColumn selectionColumn;
     private SelectAllCheckboxVisibility selectAllCheckBoxVisibility;
 
+    /*
+     * Size of the data provider for the select all checkbox state, kept until
+     * the data provider is changed or reports a data change.
+     */
+    private DataProvider<T, ?> sizedDataProvider;
+    private int dataProviderSize;
+    private Registration dataProviderSizeRegistration;
+
     /**
      * Constructor for passing a reference of the grid to this implementation.
      *
@@ -69,7 +87,7 @@ public abstract class AbstractGridMultiSelectionModel<T>
      */
     public AbstractGridMultiSelectionModel(Grid<T> grid) {
         super(grid);
-        selected = new LinkedHashSet<>();
+        selected = new MultiSelectionState<>(this::getAllItemsExcept);
         selectionColumn = new GridSelectionColumn(this::clientSelectAll,
                 this::clientDeselectAll);
         selectAllCheckBoxVisibility = SelectAllCheckboxVisibility.DEFAULT;
@@ -97,6 +115,7 @@ public abstract class AbstractGridMultiSelectionModel<T>
     protected void remove() {
         super.remove();
         deselectAll();
+        clearDataProviderSize();
         if (selectionColumn.getElement().getNode().isAttached()) {
             getGrid().getElement().removeChild(selectionColumn.getElement());
         }
@@ -107,12 +126,55 @@ public abstract class AbstractGridMultiSelectionModel<T>
         if (isSelected(item)) {
             return;
         }
-        Set<T> oldSelection = new LinkedHashSet<>(selected);
-        boolean added = selected.add(item);
-        if (added) {
-            fireSelectionEvent(new MultiSelectionEvent<>(getGrid(),
-                    getGrid().asMultiSelect(), oldSelection, true));
+        doUpdateSelectionFromClient(
+                Collections.singletonMap(getItemId(item), item),
+                Collections.emptyMap());
+    }
+
+    @Override
+    public void deselectFromClient(T item) {
+        if (!isSelected(item)) {
+            return;
+        }
+        doUpdateSelectionFromClient(Collections.emptyMap(),
+                Collections.singletonMap(getItemId(item), item));
+    }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The whole batch is applied at once and results in a single selection
+     * event.
+     */
+    @Override
+    public void updateSelectionFromClient(Set<T> addedItems,
+            Set<T> removedItems) {
+        Objects.requireNonNull(addedItems, "added items cannot be null");
+        Objects.requireNonNull(removedItems, "removed items cannot be null");
+        Map<Object, T> addedItemsMap = mapItemsById(addedItems);
+        Map<Object, T> removedItemsMap = mapItemsById(removedItems);
+        removeOverlap(addedItemsMap, removedItemsMap);
+        addedItemsMap.keySet().removeIf(selected::contains);
+        removedItemsMap.keySet().removeIf(id -> !selected.contains(id));
+        doUpdateSelectionFromClient(addedItemsMap, removedItemsMap);
+    }
+
+    private void doUpdateSelectionFromClient(Map<Object, T> addedItems,
+            Map<Object, T> removedItems) {
+        if (addedItems.isEmpty() && removedItems.isEmpty()) {
+            return;
+        }
+        Set<T> oldSelection = selected.snapshot();
+        selected.update(addedItems, removedItems);
+        fireSelectionEvent(new MultiSelectionEvent<>(getGrid(),
+                getEventSource(), oldSelection, true));
+
+        if (!removedItems.isEmpty()) {
+            selectionColumn.setSelectAllCheckboxState(false);
+        } else if (selected.isInverted()) {
+            selectionColumn.setSelectAllCheckboxState(
+                    selected.getEntryCount() == 0);
+        } else {
             long size = 0;
 
             final DataProvider<T, ?> dataProvider = getGrid()
@@ -121,40 +183,26 @@ public abstract class AbstractGridMultiSelectionModel<T>
             // Avoid throwing an IllegalArgumentException in case of
             // HierarchicalDataProvider
             if (!(dataProvider instanceof HierarchicalDataProvider)) {
-                size = dataProvider.size(new Query<>());
+                size = getDataProviderSize(dataProvider);
             }
 
-            selectionColumn.setSelectAllCheckboxState(size == selected.size());
-        }
-    }
-
-    @Override
-    public void deselectFromClient(T item) {
-        if (!isSelected(item)) {
-            return;
+            selectionColumn.setSelectAllCheckboxState(
+                    size == selected.getEntryCount());
         }
-        Set<T> oldSelection = new LinkedHashSet<>(selected);
-        boolean removed = selected.remove(item);
-        if (removed) {
-            fireSelectionEvent(new MultiSelectionEvent<>(getGrid(),
-                    getGrid().asMultiSelect(), oldSelection, true));
-        }
-        selectionColumn.setSelectAllCheckboxState(false);
     }
 
     @Override
     public Set<T> getSelectedItems() {
         /*
-         * A new LinkedHashSet is created to avoid
-         * ConcurrentModificationExceptions when changing the selection during
-         * an iteration
+         * A copy is returned to avoid ConcurrentModificationExceptions when
+         * changing the selection during an iteration
          */
-        return Collections.unmodifiableSet(new LinkedHashSet<>(selected));
+        return selected.copy();
     }
 
     @Override
     public Optional<T> getFirstSelectedItem() {
-        return selected.stream().findFirst();
+        return selected.getFirst();
     }
 
     @Override
@@ -182,19 +230,24 @@ public abstract class AbstractGridMultiSelectionModel<T>
         selectionColumn.setSelectAllCheckboxState(false);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The items are not fetched from the data provider. Until the selection
+     * is cleared, every item is selected unless it is deselected, including
+     * items added to the data provider afterwards. {@link #isSelected(Object)}
+     * then only checks that the item has not been deselected, not that the
+     * data provider contains it. Changing the data provider of the grid
+     * deselects all items.
+     */
     @Override
     public void selectAll() {
-        updateSelection(
-                getGrid().getDataCommunicator().getDataProvider()
-                        .fetch(new Query<>()).collect(Collectors.toSet()),
-                Collections.emptySet());
-        selectionColumn.setSelectAllCheckboxState(true);
+        doSelectAll(false);
     }
 
     @Override
     public void deselectAll() {
-        updateSelection(Collections.emptySet(), getSelectedItems());
-        selectionColumn.setSelectAllCheckboxState(false);
+        doDeselectAll(false);
     }
 
     @Override
@@ -206,12 +259,26 @@ public abstract class AbstractGridMultiSelectionModel<T>
 
     @Override
     public boolean isSelected(T item) {
-        return getSelectedItems().stream().anyMatch(selectedItem -> Objects
-            .equals(getItemId(selectedItem), getItemId(item)));
+        return item != null && selected.contains(getItemId(item));
     }
 
     @Override
     public MultiSelect<Grid<T>, T> asMultiSelect() {
+        return createMultiSelect(this::getSelectedItems);
+    }
+
+    /**
+     * Creates the selection source of the selection events. The new selection
+     * of an event is a snapshot that is only copied if a listener reads it.
+     *
+     * @return the selection source for an event
+     */
+    private MultiSelect<Grid<T>, T> getEventSource() {
+        return createMultiSelect(selected::snapshot);
+    }
+
+    private MultiSelect<Grid<T>, T> createMultiSelect(
+            SerializableSupplier<Set<T>> selectedItems) {
         return new MultiSelect<Grid<T>, T>() {
 
             @SuppressWarnings({ "unchecked", "rawtypes" })
@@ -253,7 +320,7 @@ public abstract class AbstractGridMultiSelectionModel<T>
 
             @Override
             public Set<T> getSelectedItems() {
-                return AbstractGridMultiSelectionModel.this.getSelectedItems();
+                return selectedItems.get();
             }
         };
     }
@@ -339,18 +406,78 @@ public abstract class AbstractGridMultiSelectionModel<T>
             // ignore event if the checkBox was meant to be hidden
             return;
         }
-        Stream<T> allItemsStream;
+        doSelectAll(true);
+    }
+
+    /**
+     * Selects all items without fetching them. The selection is switched to
+     * "all items except the excluded ones" and the items loaded by the client
+     * are resent to update their selection state.
+     *
+     * @param userOriginated
+     *            {@code true} if the selection was made by the user
+     */
+    private void doSelectAll(boolean userOriginated) {
+        if (selected.isInverted() && selected.getEntryCount() == 0) {
+            selectionColumn.setSelectAllCheckboxState(true);
+            return;
+        }
+        replaceSelection(true, userOriginated);
+        selectionColumn.setSelectAllCheckboxState(true);
+    }
+
+    private void doDeselectAll(boolean userOriginated) {
+        if (selected.isInverted()) {
+            replaceSelection(false, userOriginated);
+        } else {
+            doUpdateSelection(Collections.emptySet(), getSelectedItems(),
+                    userOriginated);
+        }
+        selectionColumn.setSelectAllCheckboxState(false);
+    }
+
+    private void replaceSelection(boolean selectAll, boolean userOriginated) {
+        Set<T> oldSelection = selected.snapshot();
+        selected.replace(selectAll);
+        getGrid().getDataCommunicator().reset();
+        fireSelectionEvent(new MultiSelectionEvent<>(getGrid(),
+                getEventSource(), oldSelection, userOriginated));
+    }
+
+    /**
+     * Gets a function for streaming all items of the current data provider
+     * except the ones with the given ids, which is the selection after select
+     * all. The function keeps using the same data provider even if the data
+     * provider of the grid is changed.
+     *
+     * @return a function for streaming all items except the given ones
+     */
+    private SerializableFunction<Set<Object>, Stream<T>> getAllItemsExcept() {
         DataProvider<T, ?> dataProvider = getGrid().getDataCommunicator()
                 .getDataProvider();
+        return excludedIds -> {
+            Stream<T> items = fetchAllItems(dataProvider);
+            if (excludedIds.isEmpty()) {
+                return items;
+            }
+            return items.filter(
+                    item -> !excludedIds.contains(dataProvider.getId(item)));
+        };
+    }
+
+    /**
+     * Streams all items of the given data provider.
+     *
+     * @param dataProvider
+     *            the data provider to fetch from
+     * @return a stream of all items
+     */
+    private Stream<T> fetchAllItems(DataProvider<T, ?> dataProvider) {
         if (dataProvider instanceof HierarchicalDataProvider) {
-            allItemsStream = fetchAllHierarchical(
+            return fetchAllHierarchical(
                     (HierarchicalDataProvider<T, ?>) dataProvider);
-        } else {
-            allItemsStream = dataProvider.fetch(new Query<>());
         }
-        doUpdateSelection(allItemsStream.collect(Collectors.toSet()),
-                Collections.emptySet(), true);
-        selectionColumn.setSelectAllCheckboxState(true);
+        return dataProvider.fetch(new Query<>());
     }
 
     /**
@@ -396,35 +523,36 @@ public abstract class AbstractGridMultiSelectionModel<T>
             // ignore event if the checkBox was meant to be hidden
             return;
         }
-        doUpdateSelection(Collections.emptySet(), getSelectedItems(), true);
-        selectionColumn.setSelectAllCheckboxState(false);
+        doDeselectAll(true);
     }
 
     private void doUpdateSelection(Set<T> addedItems, Set<T> removedItems,
             boolean userOriginated) {
         Map<Object, T> addedItemsMap = mapItemsById(addedItems);
         Map<Object, T> removedItemsMap = mapItemsById(removedItems);
-        addedItemsMap.keySet().stream().filter(removedItemsMap::containsKey)
+        removeOverlap(addedItemsMap, removedItemsMap);
+        doUpdateSelection(addedItemsMap,removedItemsMap,userOriginated);
+    }
+
+    private void removeOverlap(Map<Object, T> addedItems,
+            Map<Object, T> removedItems) {
+        addedItems.keySet().stream().filter(removedItems::containsKey)
             .collect(Collectors.toList()).forEach(key -> {
-            addedItemsMap.remove(key);
-            removedItemsMap.remove(key);
+            addedItems.remove(key);
+            removedItems.remove(key);
         });
-        doUpdateSelection(addedItemsMap,removedItemsMap,userOriginated);
     }
 
     private void doUpdateSelection(Map<Object, T> addedItems,
         Map<Object, T> removedItems, boolean userOriginated) {
 
-        Map<Object, T> selectedMap = mapItemsById(selected);
-        if (selectedMap.keySet().containsAll(addedItems.keySet()) && Collections
-            .disjoint(selectedMap.keySet(), removedItems.keySet())) {
+        if (addedItems.keySet().stream().allMatch(selected::contains)
+                && removedItems.keySet().stream()
+                        .noneMatch(selected::contains)) {
             return;
         }
-        Set<T> oldSelection = new LinkedHashSet<>(selected);
-        removedItems.keySet().forEach(selectedMap::remove);
-        selectedMap.putAll(addedItems);
-        selected.clear();
-        selected.addAll(selectedMap.values());
+        Set<T> oldSelection = selected.snapshot();
+        selected.update(addedItems, removedItems);
 
         sendSelectionUpdate(new LinkedHashSet<>(addedItems.values()),
             getGrid()::doClientSideSelection);
@@ -432,7 +560,7 @@ public abstract class AbstractGridMultiSelectionModel<T>
             getGrid()::doClientSideDeselection);
 
         fireSelectionEvent(
-            new MultiSelectionEvent<>(getGrid(), getGrid().asMultiSelect(),
+            new MultiSelectionEvent<>(getGrid(), getEventSource(),
                 oldSelection, userOriginated));
         if (!removedItems.isEmpty()) {
             selectionColumn.setSelectAllCheckboxState(false);
@@ -458,6 +586,30 @@ public abstract class AbstractGridMultiSelectionModel<T>
         clientSideUpdater.accept(activeItems);
     }
 
+    private int getDataProviderSize(DataProvider<T, ?> dataProvider) {
+        if (dataProvider != sizedDataProvider) {
+            clearDataProviderSize();
+            dataProviderSize = dataProvider.size(new Query<>());
+            sizedDataProvider = dataProvider;
+            dataProviderSizeRegistration = dataProvider
+                    .addDataProviderListener(event -> {
+                        // Refreshing a single item doesn't change the size
+                        if (!(event instanceof DataRefreshEvent)) {
+                            clearDataProviderSize();
+                        }
+                    });
+        }
+        return dataProviderSize;
+    }
+
+    private void clearDataProviderSize() {
+        if (dataProviderSizeRegistration != null) {
+            dataProviderSizeRegistration.remove();
+            dataProviderSizeRegistration = null;
+        }
+        sizedDataProvider = null;
+    }
+
     private Object getItemId(T item) {
         return getGrid().getDataCommunicator().getDataProvider().getId(item);
     }
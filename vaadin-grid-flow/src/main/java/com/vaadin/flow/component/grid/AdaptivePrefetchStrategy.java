@@ -0,0 +1,98 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.grid;
+
+/**
+ * Prefetch strategy that adapts to the scroll velocity and to the time of
+ * fetching pages from the data provider.
+ * <p>
+ * When the viewport is still or scrolled slowly, half a viewport of rows is
+ * fetched on each side. When scrolled faster, the rows that are scrolled past
+ * while the next page is fetched and sent are fetched ahead in the direction
+ * of travel, and a quarter of a viewport behind. The rows fetched ahead are
+ * limited to {@link #getMaxPrefetchedRows()}.
+ *
+ * @author Vaadin Ltd.
+ */
+public class AdaptivePrefetchStrategy implements PrefetchStrategy {
+
+    private final int maxPrefetchedRows;
+    private final double roundTripMillis;
+
+    /**
+     * Creates a new strategy that fetches at most 500 rows ahead and assumes
+     * a round trip time of 200 milliseconds.
+     */
+    public AdaptivePrefetchStrategy() {
+        this(500, 200);
+    }
+
+    /**
+     * Creates a new strategy.
+     *
+     * @param maxPrefetchedRows
+     *            the maximum number of rows to fetch ahead of the needed
+     *            rows, not negative
+     * @param roundTripMillis
+     *            the assumed time of a round trip to the server in
+     *            milliseconds, excluding the fetch from the data provider
+     */
+    public AdaptivePrefetchStrategy(int maxPrefetchedRows,
+            double roundTripMillis) {
+        if (maxPrefetchedRows < 0) {
+            throw new IllegalArgumentException(
+                    "The maximum number of prefetched rows cannot be negative");
+        }
+        this.maxPrefetchedRows = maxPrefetchedRows;
+        this.roundTripMillis = roundTripMillis;
+    }
+
+    /**
+     * Gets the maximum number of rows fetched ahead of the needed rows.
+     *
+     * @return the maximum number of prefetched rows
+     */
+    public int getMaxPrefetchedRows() {
+        return maxPrefetchedRows;
+    }
+
+    /**
+     * Gets the assumed time of a round trip to the server.
+     *
+     * @return the round trip time in milliseconds
+     */
+    public double getRoundTripMillis() {
+        return roundTripMillis;
+    }
+
+    @Override
+    public Window getPrefetchWindow(Viewport viewport) {
+        int visible = viewport.getVisibleRowCount();
+        double speed = Math.abs(viewport.getVelocity());
+        if (speed < visible) {
+            // Less than a viewport per second
+            int half = Math.min(visible / 2, maxPrefetchedRows);
+            return new Window(half, half);
+        }
+        double seconds = (roundTripMillis + viewport.getPageFetchMillis())
+                / 1000;
+        int ahead = (int) Math.min(maxPrefetchedRows,
+                Math.max(visible / 2, speed * seconds));
+        int behind = Math.min(visible / 4, ahead);
+        return viewport.getVelocity() > 0 ? new Window(behind, ahead)
+                : new Window(ahead, behind);
+    }
+}
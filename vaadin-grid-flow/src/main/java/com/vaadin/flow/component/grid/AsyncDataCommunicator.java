@@ -0,0 +1,345 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.grid;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.vaadin.flow.component.Component;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.UIDetachedException;
+import com.vaadin.flow.data.provider.ArrayUpdater;
+import com.vaadin.flow.data.provider.DataCommunicator;
+import com.vaadin.flow.data.provider.DataGenerator;
+import com.vaadin.flow.dom.Element;
+import com.vaadin.flow.function.SerializableConsumer;
+import com.vaadin.flow.server.Command;
+
+import elemental.json.JsonValue;
+
+/**
+ * Data communicator of {@link Grid} that can fetch the items from the data
+ * provider asynchronously.
+ * <p>
+ * When an executor is set, the items of a requested range are fetched on the
+ * executor without holding the session lock. The previously requested range
+ * stays active meanwhile, so that the rows already sent to the client keep
+ * their positions. The fetched items are delivered back to the UI with
+ * {@link UI#access(Command)}, which then activates the requested range like a
+ * synchronously fetched one. After a reset of the data, such as changing the
+ * sort order, the filter or the data provider, nothing is sent until the
+ * items of the requested range have been fetched. A fetch is superseded by a
+ * fetch of another range and by any reset of the data, and its result is
+ * then discarded. The size of the data is still queried synchronously.
+ * <p>
+ * If the executor rejects a fetch, the items are fetched synchronously
+ * instead.
+ * <p>
+ * The average time of fetching an item is measured for asynchronous fetches,
+ * and for synchronous fetches when {@link #setFetchTimeMeasured(boolean)
+ * enabled}.
+ *
+ * @author Vaadin Ltd.
+ *
+ * @param <T>
+ *            the bean type
+ */
+class AsyncDataCommunicator<T> extends DataCommunicator<T> {
+
+    private static final class Fetch<T> implements Serializable {
+        private final int offset;
+        private final int limit;
+        private final int generation;
+        private List<T> items;
+
+        private Fetch(int offset, int limit, int generation) {
+            this.offset = offset;
+            this.limit = limit;
+            this.generation = generation;
+        }
+
+        private boolean matches(int offset, int limit, int generation) {
+            return this.offset == offset && this.limit == limit
+                    && this.generation == generation;
+        }
+
+        private boolean covers(int offset, int limit, int generation) {
+            return this.generation == generation && offset >= this.offset
+                    && (long) offset + limit <= (long) this.offset
+                            + this.limit;
+        }
+
+        private Stream<T> slice(int offset, int limit) {
+            int from = Math.min(offset - this.offset, items.size());
+            int to = Math.min(from + limit, items.size());
+            return items.subList(from, to).stream();
+        }
+    }
+
+    private final Element element;
+    private transient Executor executor;
+
+    private int requestedStart;
+    private int requestedLength;
+
+    /*
+     * Incremented on each reset, which makes the fetches in progress stale.
+     */
+    private int generation;
+    private Fetch<T> pendingFetch;
+    private Fetch<T> completedFetch;
+    /*
+     * True after a reset until the requested range has been sent again. The
+     * data communicator then activates the whole range at once, so nothing
+     * can be sent for it without misplacing rows.
+     */
+    private boolean resendPending = true;
+
+    private boolean fetchTimeMeasured;
+
+    /*
+     * Exponential moving average of the fetch time per item, or a negative
+     * value if nothing has been fetched yet.
+     */
+    private double fetchNanosPerItem = -1;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param dataGenerator
+     *            the data generator function
+     * @param arrayUpdater
+     *            array updater strategy
+     * @param dataUpdater
+     *            data updater strategy
+     * @param element
+     *            the grid element
+     */
+    AsyncDataCommunicator(DataGenerator<T> dataGenerator,
+            ArrayUpdater arrayUpdater,
+            SerializableConsumer<JsonValue> dataUpdater, Element element) {
+        super(dataGenerator, arrayUpdater, dataUpdater, element.getNode());
+        this.element = element;
+    }
+
+    /**
+     * Sets the executor for fetching the items from the data provider, or
+     * {@code null} to fetch the items synchronously.
+     *
+     * @param executor
+     *            the executor to fetch the items on, or {@code null}
+     */
+    void setExecutor(Executor executor) {
+        this.executor = executor;
+        pendingFetch = null;
+        completedFetch = null;
+        if (executor == null) {
+            // Activates a range that was waiting for its items
+            super.setRequestedRange(requestedStart, requestedLength);
+        }
+    }
+
+    /**
+     * Gets the executor for fetching the items from the data provider.
+     *
+     * @return the executor, or {@code null} if the items are fetched
+     *         synchronously
+     */
+    Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Sets whether the time of fetching the items synchronously is measured.
+     * Synchronously fetched items are otherwise streamed from the data
+     * provider as is. The time of asynchronous fetches is always measured.
+     *
+     * @param fetchTimeMeasured
+     *            {@code true} to measure the time of synchronous fetches
+     * @see #getFetchMillisPerItem()
+     */
+    void setFetchTimeMeasured(boolean fetchTimeMeasured) {
+        this.fetchTimeMeasured = fetchTimeMeasured;
+    }
+
+    /**
+     * Gets the average time of fetching an item from the data provider.
+     *
+     * @return the average fetch time per item in milliseconds, or {@code 0}
+     *         if nothing has been fetched yet
+     */
+    double getFetchMillisPerItem() {
+        return fetchNanosPerItem < 0 ? 0 : fetchNanosPerItem / 1_000_000;
+    }
+
+    @Override
+    public void setRequestedRange(int start, int length) {
+        requestedStart = start;
+        requestedLength = length;
+        Optional<UI> ui = getUI();
+        if (executor != null && ui.isPresent()
+                && (completedFetch == null
+                        || !completedFetch.covers(start, length, generation))
+                && fetchRequestedRange(ui.get())) {
+            // Keep the active range until the items of the new one are fetched
+            return;
+        }
+        super.setRequestedRange(start, length);
+    }
+
+    @Override
+    public void reset() {
+        generation++;
+        pendingFetch = null;
+        completedFetch = null;
+        resendPending = true;
+        super.reset();
+    }
+
+    @Override
+    protected Stream<T> fetchFromProvider(int offset, int limit) {
+        if (limit <= 0) {
+            return Stream.empty();
+        }
+        if (executor != null) {
+            if (completedFetch != null
+                    && completedFetch.covers(offset, limit, generation)) {
+                return completedFetch.slice(offset, limit);
+            }
+            Optional<UI> ui = getUI();
+            if (resendPending && ui.isPresent()
+                    && fetchRequestedRange(ui.get())) {
+                return Stream.empty();
+            }
+        }
+        // Only a part of the active range changes, fetch it right away
+        resendPending = false;
+        if (executor == null && !fetchTimeMeasured) {
+            return super.fetchFromProvider(offset, limit);
+        }
+        long start = System.nanoTime();
+        List<T> items = fetchItems(offset, limit);
+        recordFetch(System.nanoTime() - start, items.size());
+        return items.stream();
+    }
+
+    private Optional<UI> getUI() {
+        return element.getComponent().flatMap(Component::getUI);
+    }
+
+    /**
+     * Fetches the requested range on the executor, unless it is already being
+     * fetched.
+     *
+     * @param ui
+     *            the UI to deliver the fetched items to
+     * @return {@code true} if the range is being fetched, {@code false} if
+     *         the executor rejected the fetch
+     */
+    private boolean fetchRequestedRange(UI ui) {
+        if (pendingFetch != null && pendingFetch.matches(requestedStart,
+                requestedLength, generation)) {
+            return true;
+        }
+        return startFetch(ui,
+                new Fetch<>(requestedStart, requestedLength, generation));
+    }
+
+    private boolean startFetch(UI ui, Fetch<T> fetch) {
+        pendingFetch = fetch;
+        try {
+            executor.execute(() -> runFetch(ui, fetch));
+            return true;
+        } catch (RejectedExecutionException e) {
+            // Fetched synchronously instead
+            pendingFetch = null;
+            return false;
+        }
+    }
+
+    private void runFetch(UI ui, Fetch<T> fetch) {
+        List<T> items;
+        long start = System.nanoTime();
+        try {
+            items = fetchItems(fetch.offset, fetch.limit);
+        } catch (RuntimeException e) {
+            access(ui, () -> {
+                if (fetch == pendingFetch) {
+                    pendingFetch = null;
+                    throw e;
+                }
+            });
+            return;
+        }
+        long duration = System.nanoTime() - start;
+        access(ui, () -> {
+            recordFetch(duration, items.size());
+            deliver(fetch, items);
+        });
+    }
+
+    /**
+     * Fetches the items of the given range synchronously, with the filter and
+     * the sort order of this data communicator.
+     *
+     * @param offset
+     *            the index of the first item to fetch
+     * @param limit
+     *            the maximum number of items to fetch
+     * @return the fetched items
+     */
+    List<T> fetchItems(int offset, int limit) {
+        return super.fetchFromProvider(offset, limit)
+                .collect(Collectors.toList());
+    }
+
+    private void recordFetch(long nanos, int itemCount) {
+        if (itemCount == 0) {
+            return;
+        }
+        double sample = (double) nanos / itemCount;
+        fetchNanosPerItem = fetchNanosPerItem < 0 ? sample
+                : 0.7 * fetchNanosPerItem + 0.3 * sample;
+    }
+
+    private static void access(UI ui, Command command) {
+        try {
+            ui.access(command);
+        } catch (UIDetachedException e) {
+            // The items are not needed anymore
+        }
+    }
+
+    private void deliver(Fetch<T> fetch, List<T> items) {
+        if (fetch != pendingFetch) {
+            // Superseded by another range or a reset
+            return;
+        }
+        pendingFetch = null;
+        resendPending = false;
+        fetch.items = items;
+        // Kept until another range is fetched, a flush may activate the
+        // range in several parts
+        completedFetch = fetch;
+        // Activates the requested range, now with the fetched items
+        super.setRequestedRange(requestedStart, requestedLength);
+    }
+}
@@ -18,16 +18,21 @@ package com.vaadin.flow.component.grid;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.function.BiFunction;
 import java.util.function.BinaryOperator;
 import java.util.stream.Collectors;
@@ -83,6 +88,7 @@ import com.vaadin.flow.data.provider.KeyMapper;
 import com.vaadin.flow.data.provider.Query;
 import com.vaadin.flow.data.provider.QuerySortOrder;
 import com.vaadin.flow.data.provider.SortDirection;
+import com.vaadin.flow.data.provider.hierarchy.HierarchicalDataProvider;
 import com.vaadin.flow.data.renderer.ComponentRenderer;
 import com.vaadin.flow.data.renderer.Renderer;
 import com.vaadin.flow.data.renderer.Rendering;
@@ -97,6 +103,7 @@ import com.vaadin.flow.data.selection.SingleSelect;
 import com.vaadin.flow.data.selection.SingleSelectionListener;
 import com.vaadin.flow.dom.DisabledUpdateMode;
 import com.vaadin.flow.dom.Element;
+import com.vaadin.flow.function.SerializableBiConsumer;
 import com.vaadin.flow.function.SerializableBiFunction;
 import com.vaadin.flow.function.SerializableComparator;
 import com.vaadin.flow.function.SerializableFunction;
@@ -158,8 +165,55 @@ public class Grid<T> extends Component implements HasDataProvider<T>, HasStyle,
 
         @Override
         public void set(int start, List<JsonValue> items) {
-            enqueue("$connector.set", start,
-                    items.stream().collect(JsonUtils.asArray()));
+            enqueue("$connector.set", start, encodeItems(items));
+        }
+
+        /**
+         * Encodes the given items for {@code $connector.set}.
+         * <p>
+         * By default the items are sent as an array of objects. If
+         * {@link UpdateQueueData#isCompactItemEncoding() compact encoding} is
+         * enabled, the property names are sent once for each distinct set of
+         * properties ({@code shapes}) and each item as an array of values
+         * prefixed with the index of its shape ({@code rows}).
+         *
+         * @param items
+         *            the items to encode
+         * @return the encoded items
+         */
+        protected JsonValue encodeItems(List<JsonValue> items) {
+            if (!data.isCompactItemEncoding()) {
+                return items.stream().collect(JsonUtils.asArray());
+            }
+            JsonArray shapes = Json.createArray();
+            JsonArray rows = Json.createArray();
+            Map<List<String>, Integer> shapeIndexes = new HashMap<>();
+            for (JsonValue item : items) {
+                if (!(item instanceof JsonObject)) {
+                    rows.set(rows.length(), item);
+                    continue;
+                }
+                JsonObject object = (JsonObject) item;
+                String[] names = object.keys();
+                int shape = shapeIndexes.computeIfAbsent(Arrays.asList(names),
+                        key -> {
+                            JsonArray header = Json.createArray();
+                            key.forEach(
+                                    name -> header.set(header.length(), name));
+                            shapes.set(shapes.length(), header);
+                            return shapes.length() - 1;
+                        });
+                JsonArray row = Json.createArray();
+                row.set(0, shape);
+                for (int i = 0; i < names.length; i++) {
+                    row.set(i + 1, object.get(names[i]));
+                }
+                rows.set(rows.length(), row);
+            }
+            JsonObject encoded = Json.createObject();
+            encoded.put("shapes", shapes);
+            encoded.put("rows", rows);
+            return encoded;
         }
 
         @Override
@@ -284,9 +338,8 @@ public class Grid<T> extends Component implements HasDataProvider<T>, HasStyle,
      * Server-side component for the {@code <vaadin-grid-column>} element.
      *
      * <p>
-     * Every added column sends data to the client side regardless of its
-     * visibility state. Don't add a new column at all or use
-     * {@link Grid#removeColumn(Column)} to avoid sending extra data.
+     * The data of invisible columns is not sent to the client side, and it
+     * is sent for the loaded rows when a column is made visible.
      * </p>
      *
      * @param <T>
@@ -314,8 +367,10 @@ public class Grid<T> extends Component implements HasDataProvider<T>, HasStyle,
 
         private SerializableComparator<T> comparator;
 
+        private DataGenerator<T> columnDataGenerator;
         private Registration columnDataGeneratorRegistration;
         private Registration editorDataGeneratorRegistration;
+        private boolean columnDataSuspended;
 
         private Renderer<T> renderer;
         private Rendering<T> rendering;
@@ -345,12 +400,11 @@ public class Grid<T> extends Component implements HasDataProvider<T>, HasStyle,
             rendering = renderer.render(getElement(), (KeyMapper<T>) getGrid()
                     .getDataCommunicator().getKeyMapper());
 
-            Optional<DataGenerator<T>> dataGenerator = rendering
-                    .getDataGenerator();
+            columnDataGenerator = rendering.getDataGenerator().orElse(null);
 
-            if (dataGenerator.isPresent()) {
+            if (columnDataGenerator != null) {
                 columnDataGeneratorRegistration = grid
-                        .addDataGenerator(dataGenerator.get());
+                        .addDataGenerator(columnDataGenerator);
             }
         }
 
@@ -359,6 +413,8 @@ public class Grid<T> extends Component implements HasDataProvider<T>, HasStyle,
                 columnDataGeneratorRegistration.remove();
                 columnDataGeneratorRegistration = null;
             }
+            columnDataGenerator = null;
+            columnDataSuspended = false;
             if (editorDataGeneratorRegistration != null) {
                 editorDataGeneratorRegistration.remove();
                 editorDataGeneratorRegistration = null;
@@ -369,6 +425,40 @@ public class Grid<T> extends Component implements HasDataProvider<T>, HasStyle,
             return columnInternalId;
         }
 
+        @SuppressWarnings("unchecked")
+        private Grid<T> getGridInstance() {
+            return (Grid<T>) getGrid();
+        }
+
+        /**
+         * Gets the data generator of the renderer of this column.
+         *
+         * @return the data generator, or {@code null} if the renderer has no
+         *         data generator
+         */
+        DataGenerator<T> getDataGenerator() {
+            return columnDataGenerator;
+        }
+
+        @Override
+        public void setVisible(boolean visible) {
+            super.setVisible(visible);
+            if (columnDataGenerator == null || visible != columnDataSuspended) {
+                return;
+            }
+            // The data generator is registered only while the column is visible
+            if (visible) {
+                columnDataGeneratorRegistration = getGridInstance()
+                        .addDataGenerator(columnDataGenerator);
+                columnDataSuspended = false;
+                getGridInstance().resumeColumnData(this);
+            } else {
+                columnDataGeneratorRegistration.remove();
+                columnDataGeneratorRegistration = null;
+                columnDataSuspended = true;
+            }
+        }
+
         /**
          * Get the renderer used for this column.
          * <p>
@@ -866,6 +956,7 @@ public class Grid<T> extends Component implements HasDataProvider<T>, HasStyle,
             Objects.requireNonNull(classNameGenerator,
                     "Class name generator can not be null");
             this.classNameGenerator = classNameGenerator;
+            getGrid().addClassNameGeneratorColumn(this);
             getGrid().getDataCommunicator().reset();
             return this;
         }
@@ -965,11 +1056,34 @@ public class Grid<T> extends Component implements HasDataProvider<T>, HasStyle,
 
     /**
      * Class for managing visible details rows.
-     *
+     * <p>
+     * The visibility of the details is stored by data provider id. The details
+     * of at most {@link #getMaxRetainedItemDetails()} items are built when the
+     * items are sent to the client. The details of other items are sent as
+     * lazy, and built only when the client requests them for its rendered
+     * rows, evicting the least recently used details.
      */
     private class DetailsManager extends AbstractGridExtension<T> {
 
-        private final HashSet<T> detailsVisible = new HashSet<>();
+        private final Set<Object> detailsVisible = new HashSet<>();
+
+        /*
+         * The items with visible details that are on the client, by id. The
+         * items are referenced by the key mapper anyway.
+         */
+        private final Map<Object, T> openedItems = new HashMap<>();
+
+        /*
+         * The items whose details are built, in access order.
+         */
+        private final LinkedHashMap<Object, T> builtDetails = new LinkedHashMap<>(
+                16, 0.75f, true);
+
+        /*
+         * The names of the properties written by the details data generator,
+         * cleared on the client when the details are evicted.
+         */
+        private final Set<String> detailsPropertyNames = new HashSet<>();
 
         /**
          * Constructs a new details manager for the given grid.
@@ -991,17 +1105,23 @@ public class Grid<T> extends Component implements HasDataProvider<T>, HasStyle,
          *            {@code false} if it should be hidden
          */
         public void setDetailsVisible(T item, boolean visible) {
+            Object id = getItemId(item);
             boolean refresh = false;
             if (!visible) {
-                refresh = detailsVisible.remove(item);
+                refresh = detailsVisible.remove(id);
+                openedItems.remove(id);
+                builtDetails.remove(id);
             } else {
-                detailsVisible.add(item);
+                detailsVisible.add(id);
                 refresh = true;
             }
 
             if (itemDetailsDataGenerator != null && refresh) {
+                if (visible) {
+                    makeRoomForDetails(Collections.singleton(item));
+                }
                 refresh(item);
-                if (!detailsVisible.contains(item)) {
+                if (!visible) {
                     itemDetailsDataGenerator.destroyData(item);
                 }
             }
@@ -1018,14 +1138,22 @@ public class Grid<T> extends Component implements HasDataProvider<T>, HasStyle,
          */
         public boolean isDetailsVisible(T item) {
             return itemDetailsDataGenerator != null
-                    && detailsVisible.contains(item);
+                    && detailsVisible.contains(getItemId(item));
         }
 
         @Override
         public void generateData(T item, JsonObject jsonObject) {
             if (itemDetailsDataGenerator != null && isDetailsVisible(item)) {
+                Object id = getItemId(item);
+                openedItems.put(id, item);
                 jsonObject.put("detailsOpened", true);
-                itemDetailsDataGenerator.generateData(item, jsonObject);
+                if (builtDetails.containsKey(id)
+                        || builtDetails.size() < maxRetainedItemDetails) {
+                    builtDetails.put(id, item);
+                    generateDetailsData(item, jsonObject);
+                } else {
+                    jsonObject.put("detailsLazy", true);
+                }
             }
         }
 
@@ -1036,7 +1164,10 @@ public class Grid<T> extends Component implements HasDataProvider<T>, HasStyle,
          */
         @Override
         public void destroyData(T item) {
-            detailsVisible.remove(item);
+            Object id = getItemId(item);
+            detailsVisible.remove(id);
+            openedItems.remove(id);
+            builtDetails.remove(id);
             if (itemDetailsDataGenerator != null) {
                 itemDetailsDataGenerator.destroyData(item);
             }
@@ -1047,6 +1178,8 @@ public class Grid<T> extends Component implements HasDataProvider<T>, HasStyle,
          */
         @Override
         public void destroyAllData() {
+            openedItems.clear();
+            builtDetails.clear();
             if (itemDetailsDataGenerator != null) {
                 itemDetailsDataGenerator.destroyAllData();
             }
@@ -1055,7 +1188,8 @@ public class Grid<T> extends Component implements HasDataProvider<T>, HasStyle,
         @Override
         public void refreshData(T item) {
             if (itemDetailsDataGenerator != null) {
-                if (isDetailsVisible(item)) {
+                if (isDetailsVisible(item)
+                        && builtDetails.containsKey(getItemId(item))) {
                     itemDetailsDataGenerator.refreshData(item);
                 } else {
                     itemDetailsDataGenerator.destroyData(item);
@@ -1063,18 +1197,118 @@ public class Grid<T> extends Component implements HasDataProvider<T>, HasStyle,
             }
         }
 
+        private void generateDetailsData(T item, JsonObject jsonObject) {
+            JsonObject detailsData = Json.createObject();
+            itemDetailsDataGenerator.generateData(item, detailsData);
+            for (String name : detailsData.keys()) {
+                detailsPropertyNames.add(name);
+                jsonObject.put(name, detailsData.<JsonValue> get(name));
+            }
+        }
+
         private void setDetailsVisibleFromClient(Set<T> items) {
-            Set<T> toRefresh = new HashSet<>();
-            toRefresh.addAll(detailsVisible);
-            toRefresh.addAll(items);
+            Map<Object, T> toRefresh = new LinkedHashMap<>(openedItems);
+            items.forEach(item -> toRefresh.put(getItemId(item), item));
 
             detailsVisible.clear();
-            detailsVisible.addAll(items);
+            openedItems.clear();
+            items.forEach(item -> detailsVisible.add(getItemId(item)));
+            builtDetails.keySet().retainAll(detailsVisible);
             if (itemDetailsDataGenerator != null) {
-                for (T item : toRefresh) {
-                    refresh(item);
+                makeRoomForDetails(items);
+                toRefresh.values().forEach(this::refresh);
+            }
+        }
+
+        /**
+         * Evicts details so that the details of the given items, opened
+         * explicitly, are built when the items are refreshed.
+         */
+        private void makeRoomForDetails(Collection<T> items) {
+            KeyMapper<T> keyMapper = getDataCommunicator().getKeyMapper();
+            long missing = items.stream()
+                    .filter(item -> keyMapper.has(item)
+                            && !builtDetails.containsKey(getItemId(item)))
+                    .count();
+            if (missing > 0) {
+                evictDetails(Collections.emptySet(),
+                        maxRetainedItemDetails - (int) missing);
+            }
+        }
+
+        /**
+         * Builds the details of the given items that are on the client, and
+         * evicts the least recently used details beyond the limit.
+         *
+         * @param items
+         *            the items the client requests the details for
+         */
+        private void buildDetails(Collection<T> items) {
+            if (itemDetailsDataGenerator == null) {
+                return;
+            }
+            KeyMapper<T> keyMapper = getDataCommunicator().getKeyMapper();
+            JsonArray patches = Json.createArray();
+            Set<Object> requestedIds = new HashSet<>();
+            for (T item : items) {
+                Object id = getItemId(item);
+                if (!isDetailsVisible(item) || !keyMapper.has(item)) {
+                    continue;
+                }
+                requestedIds.add(id);
+                if (builtDetails.put(id, item) == null) {
+                    JsonObject patch = createDetailsPatch(item);
+                    patch.put("detailsLazy", false);
+                    generateDetailsData(item, patch);
+                    patches.set(patches.length(), patch);
+                }
+            }
+            sendDetailsPatches(patches);
+            evictDetails(requestedIds, maxRetainedItemDetails);
+        }
+
+        /**
+         * Evicts the least recently used details beyond the given limit,
+         * except the details of the items with the given ids.
+         */
+        private void evictDetails(Set<Object> retainedIds, int limit) {
+            JsonArray patches = Json.createArray();
+            Iterator<Map.Entry<Object, T>> iterator = builtDetails.entrySet()
+                    .iterator();
+            int excess = builtDetails.size() - limit;
+            while (excess > 0 && iterator.hasNext()) {
+                Map.Entry<Object, T> entry = iterator.next();
+                if (retainedIds.contains(entry.getKey())) {
+                    continue;
+                }
+                iterator.remove();
+                excess--;
+                T item = entry.getValue();
+                itemDetailsDataGenerator.destroyData(item);
+                if (getDataCommunicator().getKeyMapper().has(item)) {
+                    JsonObject patch = createDetailsPatch(item);
+                    patch.put("detailsLazy", true);
+                    detailsPropertyNames.forEach(
+                            name -> patch.put(name, Json.createNull()));
+                    patches.set(patches.length(), patch);
                 }
             }
+            sendDetailsPatches(patches);
+        }
+
+        private JsonObject createDetailsPatch(T item) {
+            JsonObject patch = Json.createObject();
+            patch.put("key",
+                    getDataCommunicator().getKeyMapper().key(item));
+            generateUniqueKeyData(item, patch);
+            return patch;
+        }
+
+        private void sendDetailsPatches(JsonArray patches) {
+            if (patches.length() > 0) {
+                getElement().callJsFunction("$connector.updateFlatData",
+                        patches, true);
+            }
         }
     }
 
@@ -1096,6 +1330,7 @@ public class Grid<T> extends Component implements HasDataProvider<T>, HasStyle,
         public void initialize() {
             initConnector();
             updateSelectionModeOnClient();
+            updateConnectorSettingsOnClient();
             setRequestedRange(0, getPageSize());
         }
 
@@ -1124,6 +1359,8 @@ public class Grid<T> extends Component implements HasDataProvider<T>, HasStyle,
     private final DetailsManager detailsManager;
     private Element detailsTemplate;
     private boolean detailsVisibleOnClick = true;
+    private int maxRetainedItemDetails = 100;
+    private PrefetchStrategy prefetchStrategy;
 
     private Map<String, Column<T>> idToColumnMap = new HashMap<>();
     private Map<String, Column<T>> keyToColumnMap = new HashMap<>();
@@ -1153,9 +1390,29 @@ public class Grid<T> extends Component implements HasDataProvider<T>, HasStyle,
     private boolean verticalScrollingEnabled = true;
 
     private SerializableFunction<T, String> classNameGenerator = item -> null;
+    private boolean rowClassNameGeneratorSet;
+    /*
+     * Columns with a custom class name generator, so that the default ones
+     * don't need to be called for every row.
+     */
+    private final Map<String, Column<T>> idToClassNameGeneratorColumnMap = new HashMap<>();
     private SerializablePredicate<T> dropFilter = item -> true;
     private SerializablePredicate<T> dragFilter = item -> true;
     private Map<String, SerializableFunction<T, String>> dragDataGenerators = new HashMap<>();
+    /*
+     * The drag and drop data generators are only registered while drag and
+     * drop is in use.
+     */
+    private Registration dragAndDropAccessGeneratorRegistration;
+    private Registration dragDataGeneratorRegistration;
+
+    /*
+     * The items sent to the client, by data provider id, for sending the data
+     * of a hidden column again when it is shown.
+     */
+    private final Map<Object, T> itemsOnClient = new HashMap<>();
+
+    private Map<Column<T>, Map<Object, T>> pendingColumnData;
 
     private Registration dataProviderChangeRegistration;
 
@@ -1315,8 +1572,22 @@ public class Grid<T> extends Component implements HasDataProvider<T>, HasStyle,
         gridDataGenerator = new CompositeDataGenerator<>();
         gridDataGenerator.addDataGenerator(this::generateUniqueKeyData);
         gridDataGenerator.addDataGenerator(this::generateStyleData);
-        gridDataGenerator.addDataGenerator(this::generateRowsDragAndDropAccess);
-        gridDataGenerator.addDataGenerator(this::generateDragData);
+        gridDataGenerator.addDataGenerator(new DataGenerator<T>() {
+            @Override
+            public void generateData(T item, JsonObject jsonObject) {
+                itemsOnClient.put(getItemId(item), item);
+            }
+
+            @Override
+            public void destroyData(T item) {
+                itemsOnClient.remove(getItemId(item));
+            }
+
+            @Override
+            public void destroyAllData() {
+                itemsOnClient.clear();
+            }
+        });
 
         dataCommunicator = dataCommunicatorBuilder.build(getElement(),
                 gridDataGenerator, (U) arrayUpdater,
@@ -1382,10 +1653,10 @@ public class Grid<T> extends Component implements HasDataProvider<T>, HasStyle,
         protected DataCommunicator<T> build(Element element,
                 CompositeDataGenerator<T> dataGenerator, U arrayUpdater,
                 SerializableSupplier<ValueProvider<T, String>> uniqueKeyProviderSupplier) {
-            return new DataCommunicator<>(
-                    dataGenerator, arrayUpdater, data -> element
-                            .callJsFunction("$connector.updateFlatData", data),
-                    element.getNode());
+            return new AsyncDataCommunicator<>(dataGenerator, arrayUpdater,
+                    data -> element.callJsFunction("$connector.updateFlatData",
+                            data),
+                    element);
         }
     }
 
@@ -1404,9 +1675,8 @@ public class Grid<T> extends Component implements HasDataProvider<T>, HasStyle,
      * see {@link #addColumn(Renderer)}.
      * </p>
      * <p>
-     * Every added column sends data to the client side regardless of its
-     * visibility state. Don't add a new column at all or use
-     * {@link Grid#removeColumn(Column)} to avoid sending extra data.
+     * The data of invisible columns is not sent to the client side, and it
+     * is sent for the loaded rows when a column is made visible.
      * </p>
      * <p>
      * <em>NOTE:</em> This method is a shorthand for
@@ -1437,9 +1707,8 @@ public class Grid<T> extends Component implements HasDataProvider<T>, HasStyle,
      * see {@link #addColumn(Renderer)}.
      * </p>
      * <p>
-     * Every added column sends data to the client side regardless of its
-     * visibility state. Don't add a new column at all or use
-     * {@link Grid#removeColumn(Column)} to avoid sending extra data.
+     * The data of invisible columns is not sent to the client side, and it
+     * is sent for the loaded rows when a column is made visible.
      * </p>
      *
      * @param valueProvider
@@ -1484,9 +1753,8 @@ public class Grid<T> extends Component implements HasDataProvider<T>, HasStyle,
      * built in renderers or using {@link TemplateRenderer}.
      * </p>
      * <p>
-     * Every added column sends data to the client side regardless of its
-     * visibility state. Don't add a new column at all or use
-     * {@link Grid#removeColumn(Column)} to avoid sending extra data.
+     * The data of invisible columns is not sent to the client side, and it
+     * is sent for the loaded rows when a column is made visible.
      * </p>
      *
      * @param componentProvider
@@ -1503,6 +1771,42 @@ public class Grid<T> extends Component implements HasDataProvider<T>, HasStyle,
         return addColumn(new ComponentRenderer<>(componentProvider));
     }
 
+    /**
+     * Adds a new column that shows components, reusing the components of rows
+     * that are no longer loaded on the client for new rows.
+     * <p>
+     * New components are created with the given component provider only when
+     * there is no unused component left. An unused component is bound to its
+     * new item with the given component updater, which must reset all of the
+     * item specific state of the component. This avoids creating and
+     * discarding components while scrolling.
+     * <p>
+     * This is a shorthand for {@link #addColumn(Renderer)} with a
+     * {@link RecyclingComponentRenderer}.
+     * </p>
+     * <p>
+     * The data of invisible columns is not sent to the client side, and it
+     * is sent for the loaded rows when a column is made visible.
+     * </p>
+     *
+     * @param componentProvider
+     *            a value provider that will return a new component for the
+     *            given item
+     * @param componentUpdater
+     *            a callback binding an existing component to the given item
+     * @param <V>
+     *            the component type
+     * @return the new column
+     * @see #addComponentColumn(ValueProvider)
+     * @see RecyclingComponentRenderer#setPoolSize(int)
+     */
+    public <V extends Component> Column<T> addComponentColumn(
+            ValueProvider<T, V> componentProvider,
+            SerializableBiConsumer<V, T> componentUpdater) {
+        return addColumn(new RecyclingComponentRenderer<>(componentProvider,
+                componentUpdater));
+    }
+
     /**
      * Adds a new text column to this {@link Grid} with a value provider and
      * sorting properties.The value is converted to a JSON value by using
@@ -1512,9 +1816,8 @@ public class Grid<T> extends Component implements HasDataProvider<T>, HasStyle,
      * {@link ValueProvider}.
      *
      * <p>
-     * Every added column sends data to the client side regardless of its
-     * visibility state. Don't add a new column at all or use
-     * {@link Grid#removeColumn(Column)} to avoid sending extra data.
+     * The data of invisible columns is not sent to the client side, and it
+     * is sent for the loaded rows when a column is made visible.
      * </p>
      *
      * @see Column#setComparator(ValueProvider)
@@ -1551,9 +1854,8 @@ public class Grid<T> extends Component implements HasDataProvider<T>, HasStyle,
      * or using {@link TemplateRenderer}.
      * </p>
      * <p>
-     * Every added column sends data to the client side regardless of its
-     * visibility state. Don't add a new column at all or use
-     * {@link Grid#removeColumn(Column)} to avoid sending extra data.
+     * The data of invisible columns is not sent to the client side, and it
+     * is sent for the loaded rows when a column is made visible.
      * </p>
      * <p>
      * <em>NOTE:</em> This method is a shorthand for
@@ -1589,9 +1891,8 @@ public class Grid<T> extends Component implements HasDataProvider<T>, HasStyle,
      * or using {@link TemplateRenderer}.
      * </p>
      * <p>
-     * Every added column sends data to the client side regardless of its
-     * visibility state. Don't add a new column at all or use
-     * {@link Grid#removeColumn(Column)} to avoid sending extra data.
+     * The data of invisible columns is not sent to the client side, and it
+     * is sent for the loaded rows when a column is made visible.
      * </p>
      *
      * @param renderer
@@ -1698,9 +1999,8 @@ public class Grid<T> extends Component implements HasDataProvider<T>, HasStyle,
      * configured for it.
      *
      * <p>
-     * Every added column sends data to the client side regardless of its
-     * visibility state. Don't add a new column at all or use
-     * {@link Grid#removeColumn(Column)} to avoid sending extra data.
+     * The data of invisible columns is not sent to the client side, and it
+     * is sent for the loaded rows when a column is made visible.
      * </p>
      *
      * <p>
@@ -1744,9 +2044,8 @@ public class Grid<T> extends Component implements HasDataProvider<T>, HasStyle,
      * configured for it.
      *
      * <p>
-     * Every added column sends data to the client side regardless of its
-     * visibility state. Don't add a new column at all or use
-     * {@link Grid#removeColumn(Column)} to avoid sending extra data.
+     * The data of invisible columns is not sent to the client side, and it
+     * is sent for the loaded rows when a column is made visible.
      * </p>
      *
      * @see #addColumn(Renderer, String...)
@@ -1813,9 +2112,8 @@ public class Grid<T> extends Component implements HasDataProvider<T>, HasStyle,
      * from a bean type with {@link #Grid(Class)}.
      *
      * <p>
-     * Every added column sends data to the client side regardless of its
-     * visibility state. Don't add a new column at all or use
-     * {@link Grid#removeColumn(Column)} to avoid sending extra data.
+     * The data of invisible columns is not sent to the client side, and it
+     * is sent for the loaded rows when a column is made visible.
      * </p>
      *
      * <p>
@@ -1854,9 +2152,8 @@ public class Grid<T> extends Component implements HasDataProvider<T>, HasStyle,
      * from a bean type with {@link #Grid(Class)}.
      *
      * <p>
-     * Every added column sends data to the client side regardless of its
-     * visibility state. Don't add a new column at all or use
-     * {@link Grid#removeColumn(Column)} to avoid sending extra data.
+     * The data of invisible columns is not sent to the client side, and it
+     * is sent for the loaded rows when a column is made visible.
      * </p>
      *
      * @see #addColumn(String)
@@ -1931,9 +2228,8 @@ public class Grid<T> extends Component implements HasDataProvider<T>, HasStyle,
      * from a bean type with {@link #Grid(Class)}.
      *
      * <p>
-     * Every added column sends data to the client side regardless of its
-     * visibility state. Don't add a new column at all or use
-     * {@link Grid#removeColumn(Column)} to avoid sending extra data.
+     * The data of invisible columns is not sent to the client side, and it
+     * is sent for the loaded rows when a column is made visible.
      * </p>
      *
      * @param propertyNames
@@ -2367,6 +2663,127 @@ public class Grid<T> extends Component implements HasDataProvider<T>, HasStyle,
         getDataCommunicator().reset();
     }
 
+    /**
+     * Sets the executor for fetching the items from the data provider
+     * asynchronously, or {@code null} to fetch them synchronously, which is
+     * the default.
+     * <p>
+     * With an executor, the items of the range requested by the client are
+     * fetched on the executor, and the session lock is not held while the
+     * query runs. The fetched items are delivered back to the UI with
+     * {@link com.vaadin.flow.component.UI#access(com.vaadin.flow.server.Command)},
+     * so server push should be enabled for sending them without waiting for
+     * the next round trip. The results of fetches that are superseded by
+     * another requested range or by a change of the data, the sort order or
+     * the filter are discarded. The size of the data is still queried
+     * synchronously.
+     * <p>
+     * The data provider must be safe to call from the executor threads.
+     *
+     * @param executor
+     *            the executor to fetch the items on, or {@code null} to fetch
+     *            the items synchronously
+     * @throws UnsupportedOperationException
+     *             if the data communicator of this grid does not support
+     *             asynchronous fetching
+     */
+    public void setDataFetchExecutor(Executor executor) {
+        if (!(getDataCommunicator() instanceof AsyncDataCommunicator)) {
+            throw new UnsupportedOperationException(
+                    "Asynchronous fetching is not supported by the data communicator of "
+                            + getClass().getSimpleName());
+        }
+        ((AsyncDataCommunicator<T>) getDataCommunicator())
+                .setExecutor(executor);
+        getDataCommunicator().reset();
+    }
+
+    /**
+     * Gets the executor for fetching the items from the data provider
+     * asynchronously.
+     *
+     * @return the executor, or {@code null} if the items are fetched
+     *         synchronously
+     * @see #setDataFetchExecutor(Executor)
+     */
+    public Executor getDataFetchExecutor() {
+        if (getDataCommunicator() instanceof AsyncDataCommunicator) {
+            return ((AsyncDataCommunicator<T>) getDataCommunicator())
+                    .getExecutor();
+        }
+        return null;
+    }
+
+    /**
+     * Sets the strategy for deciding how many rows are fetched around the
+     * rows needed by the client, or {@code null} to let the client request
+     * one viewport worth of rows on each side of its viewport, which is the
+     * default.
+     * <p>
+     * With a strategy, the client requests only the pages of its viewport
+     * and reports its scroll velocity. The strategy can also take into
+     * account the average time of fetching a page from the data provider, as
+     * measured on the server.
+     *
+     * @param prefetchStrategy
+     *            the prefetch strategy, or {@code null} to use the default
+     *            prefetching of the client
+     * @see AdaptivePrefetchStrategy
+     */
+    public void setPrefetchStrategy(PrefetchStrategy prefetchStrategy) {
+        boolean changed = (this.prefetchStrategy == null)
+                != (prefetchStrategy == null);
+        this.prefetchStrategy = prefetchStrategy;
+        if (getDataCommunicator() instanceof AsyncDataCommunicator) {
+            // The fetch time is only needed by the strategy
+            ((AsyncDataCommunicator<T>) getDataCommunicator())
+                    .setFetchTimeMeasured(prefetchStrategy != null);
+        }
+        // Otherwise sent when the connector is initialized
+        if (changed && getElement().getNode().isAttached()) {
+            getElement().callJsFunction("$connector.setServerPrefetch",
+                    prefetchStrategy != null);
+        }
+    }
+
+    /**
+     * Gets the strategy for deciding how many rows are fetched around the
+     * rows needed by the client.
+     *
+     * @return the prefetch strategy, or {@code null} if the client decides
+     *         the prefetched rows
+     * @see #setPrefetchStrategy(PrefetchStrategy)
+     */
+    public PrefetchStrategy getPrefetchStrategy() {
+        return prefetchStrategy;
+    }
+
+    /**
+     * Sets whether the rows sent to the client are encoded compactly, with the
+     * property names of the rows sent once per response instead of once per
+     * row. This reduces the response size and the parsing time on the client
+     * for grids with many columns. The encoding is disabled by default.
+     *
+     * @param compactItemEncoding
+     *            {@code true} to enable the compact encoding, {@code false}
+     *            to send each row as a JSON object
+     */
+    public void setCompactItemEncoding(boolean compactItemEncoding) {
+        arrayUpdater.getUpdateQueueData()
+                .setCompactItemEncoding(compactItemEncoding);
+    }
+
+    /**
+     * Gets whether the rows sent to the client are encoded compactly.
+     *
+     * @return {@code true} if the compact encoding is enabled, {@code false}
+     *         otherwise
+     * @see #setCompactItemEncoding(boolean)
+     */
+    public boolean isCompactItemEncoding() {
+        return arrayUpdater.getUpdateQueueData().isCompactItemEncoding();
+    }
+
     /**
      * Returns the selection model for this grid.
      *
@@ -2416,6 +2833,17 @@ public class Grid<T> extends Component implements HasDataProvider<T>, HasStyle,
                 selectionMode.name());
     }
 
+    /**
+     * Sends the settings of the client connector that differ from its
+     * defaults. Called each time the connector is initialized, since the
+     * connector is created again when the grid is attached again.
+     */
+    protected void updateConnectorSettingsOnClient() {
+        if (prefetchStrategy != null) {
+            getElement().callJsFunction("$connector.setServerPrefetch", true);
+        }
+    }
+
     /**
      * Sets the grid's selection mode.
      * <p>
@@ -2755,6 +3183,7 @@ public class Grid<T> extends Component implements HasDataProvider<T>, HasStyle,
         column.destroyDataGenerators();
         keyToColumnMap.remove(column.getKey());
         idToColumnMap.remove(column.getInternalId());
+        idToClassNameGeneratorColumnMap.remove(column.getInternalId());
     }
 
     /**
@@ -2844,6 +3273,44 @@ public class Grid<T> extends Component implements HasDataProvider<T>, HasStyle,
         return detailsVisibleOnClick;
     }
 
+    /**
+     * Sets the maximum number of items whose details components are kept
+     * built. The details of the items sent to the client are built up to this
+     * limit. The details of other items are built only when their rows are
+     * rendered on the client, evicting the details of the least recently used
+     * items. The details of rendered rows are never evicted, so the limit
+     * should be larger than the number of rows with visible details that fit
+     * in the viewport. The default value is 100.
+     * <p>
+     * A lowered limit is applied when the details of some items are built the
+     * next time.
+     *
+     * @param maxRetainedItemDetails
+     *            the maximum number of built details components, not less
+     *            than one
+     * @throws IllegalArgumentException
+     *             if the given limit is less than one
+     * @see #setDetailsVisible(Object, boolean)
+     */
+    public void setMaxRetainedItemDetails(int maxRetainedItemDetails) {
+        if (maxRetainedItemDetails < 1) {
+            throw new IllegalArgumentException(
+                    "The maximum number of retained item details cannot be less than one");
+        }
+        this.maxRetainedItemDetails = maxRetainedItemDetails;
+    }
+
+    /**
+     * Gets the maximum number of items whose details components are kept
+     * built.
+     *
+     * @return the maximum number of built details components
+     * @see #setMaxRetainedItemDetails(int)
+     */
+    public int getMaxRetainedItemDetails() {
+        return maxRetainedItemDetails;
+    }
+
     /**
      * Returns the visibility of details component for given item.
      *
@@ -2921,13 +3388,70 @@ public class Grid<T> extends Component implements HasDataProvider<T>, HasStyle,
     }
 
     @ClientCallable
-    private void select(String key) {
-        getSelectionModel().selectFromClient(findByKey(key));
+    private void selectKeys(JsonArray keys) {
+        getSelectionModel().updateSelectionFromClient(findByKeys(keys),
+                Collections.emptySet());
     }
 
     @ClientCallable
-    private void deselect(String key) {
-        getSelectionModel().deselectFromClient(findByKey(key));
+    private void deselectKeys(JsonArray keys) {
+        getSelectionModel().updateSelectionFromClient(Collections.emptySet(),
+                findByKeys(keys));
+    }
+
+    @ClientCallable
+    private void selectRange(int start, int length) {
+        if (!(getSelectionModel() instanceof GridMultiSelectionModel)) {
+            // ignore the request if the selection mode was changed meanwhile
+            return;
+        }
+        DataProvider<T, ?> dataProvider = getDataCommunicator()
+                .getDataProvider();
+        if (dataProvider instanceof HierarchicalDataProvider) {
+            throw new IllegalStateException(
+                    "Selecting a range of rows is not supported for hierarchical data");
+        }
+        if (start < 0 || length < 0) {
+            throw new IllegalArgumentException(
+                    "Invalid range " + start + ", " + length);
+        }
+        // Only the rows known to the client can be selected
+        int size = getElement().getProperty("size", 0);
+        length = (int) Math.min(length, Math.max(0L, (long) size - start));
+        if (length == 0) {
+            return;
+        }
+        Set<T> items;
+        if (getDataCommunicator() instanceof AsyncDataCommunicator) {
+            items = new LinkedHashSet<>(
+                    ((AsyncDataCommunicator<T>) getDataCommunicator())
+                            .fetchItems(start, length));
+        } else {
+            // The filter of other data communicators is not accessible
+            items = dataProvider
+                    .fetch(new Query<>(start, length,
+                            getDataCommunicator().getBackEndSorting(),
+                            getDataCommunicator().getInMemorySorting(),
+                            null))
+                    .collect(Collectors.toCollection(LinkedHashSet::new));
+        }
+        // Rows that are not loaded by the client get the state on fetch
+        Set<T> loadedItems = items.stream()
+                .filter(item -> isInActiveRange(item)
+                        && !getSelectionModel().isSelected(item))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        getSelectionModel().updateSelectionFromClient(items,
+                Collections.emptySet());
+        loadedItems.forEach(getDataCommunicator()::refresh);
+        doClientSideSelection(loadedItems);
+    }
+
+    private Set<T> findByKeys(JsonArray keys) {
+        Set<T> items = new LinkedHashSet<>();
+        for (int i = 0; i < keys.length(); i++) {
+            items.add(findByKey(keys.getString(i)));
+        }
+        return items;
     }
 
     private T findByKey(String key) {
@@ -2939,8 +3463,11 @@ public class Grid<T> extends Component implements HasDataProvider<T>, HasStyle,
     }
 
     @ClientCallable(DisabledUpdateMode.ALWAYS)
-    private void confirmUpdate(int id) {
-        getDataCommunicator().confirmUpdate(id);
+    private void confirmUpdates(JsonArray ids) {
+        // The client batches the acknowledgements of several updates
+        for (int i = 0; i < ids.length(); i++) {
+            getDataCommunicator().confirmUpdate((int) ids.getNumber(i));
+        }
     }
 
     @ClientCallable(DisabledUpdateMode.ALWAYS)
@@ -2948,14 +3475,56 @@ public class Grid<T> extends Component implements HasDataProvider<T>, HasStyle,
         getDataCommunicator().setRequestedRange(start, length);
     }
 
+    @ClientCallable(DisabledUpdateMode.ALWAYS)
+    private void setViewportRange(int start, int length, int visibleRowCount,
+            double velocity) {
+        if (prefetchStrategy == null) {
+            setRequestedRange(start, length);
+            return;
+        }
+        int pageSize = getPageSize();
+        double pageFetchMillis = 0;
+        if (getDataCommunicator() instanceof AsyncDataCommunicator) {
+            pageFetchMillis = pageSize
+                    * ((AsyncDataCommunicator<T>) getDataCommunicator())
+                            .getFetchMillisPerItem();
+        }
+        PrefetchStrategy.Window window = prefetchStrategy
+                .getPrefetchWindow(new PrefetchStrategy.Viewport(start,
+                        length, visibleRowCount, velocity, pageSize,
+                        pageFetchMillis));
+        // The client caches the rows by page
+        int first = Math.max(0, start - window.getBefore()) / pageSize
+                * pageSize;
+        long end = (long) start + length + window.getAfter();
+        int last = (int) Math.min(Integer.MAX_VALUE,
+                (end + pageSize - 1) / pageSize * pageSize);
+        setRequestedRange(first, last - first);
+    }
+
     @ClientCallable
     private void setDetailsVisible(String key) {
-        if (key == null) {
+        T item = key == null ? null
+                : getDataCommunicator().getKeyMapper().get(key);
+        if (item == null) {
             detailsManager.setDetailsVisibleFromClient(Collections.emptySet());
         } else {
-            detailsManager.setDetailsVisibleFromClient(Collections
-                    .singleton(getDataCommunicator().getKeyMapper().get(key)));
+            detailsManager.setDetailsVisibleFromClient(
+                    Collections.singleton(item));
+        }
+    }
+
+    @ClientCallable
+    private void requestItemDetails(JsonArray keys) {
+        KeyMapper<T> keyMapper = getDataCommunicator().getKeyMapper();
+        List<T> items = new ArrayList<>(keys.length());
+        for (int i = 0; i < keys.length(); i++) {
+            T item = keyMapper.get(keys.getString(i));
+            if (item != null) {
+                items.add(item);
+            }
         }
+        detailsManager.buildDetails(items);
     }
 
     @ClientCallable
@@ -3188,6 +3757,132 @@ public class Grid<T> extends Component implements HasDataProvider<T>, HasStyle,
         return gridDataGenerator.addDataGenerator(dataGenerator);
     }
 
+    /**
+     * Called when the data generator of a column has been added back because
+     * the column was shown. The data of the column was either never sent for
+     * the rows on the client or, for renderers creating components, destroyed
+     * when the column was hidden, so it is sent for all of them.
+     *
+     * @param column
+     *            the shown column
+     */
+    void resumeColumnData(Column<T> column) {
+        refreshColumnData(column, new ArrayList<>(itemsOnClient.values()));
+    }
+
+    /**
+     * Refreshes the data of the given column for the given items, without
+     * regenerating the rest of the row data. This is useful when the values
+     * of a single column change often, for example a column showing live
+     * prices.
+     * <p>
+     * Only the renderer of the given column is run for the items, and only
+     * the generated properties are sent to the client. Other data generators,
+     * such as the renderers of other columns, the class name generators and
+     * the item details, are not run. Use
+     * {@link DataCommunicator#refresh(Object)} for refreshing whole rows.
+     * <p>
+     * Items that are not currently loaded on the client are ignored. Refreshes
+     * made during the same round trip are sent to the client together, with
+     * one update per item.
+     *
+     * @param column
+     *            the column to refresh, not {@code null}
+     * @param items
+     *            the items to refresh the column data for, not {@code null}
+     * @throws IllegalArgumentException
+     *             if the column is not owned by this Grid
+     */
+    public void refreshColumn(Column<T> column, Collection<T> items) {
+        Objects.requireNonNull(column, "Column can't be null");
+        Objects.requireNonNull(items, "Items can't be null");
+        ensureOwner(column);
+        refreshColumnData(column, items);
+    }
+
+    /**
+     * Refreshes the data of the given column for the given items, without
+     * regenerating the rest of the row data.
+     *
+     * @param column
+     *            the column to refresh, not {@code null}
+     * @param items
+     *            the items to refresh the column data for
+     * @throws IllegalArgumentException
+     *             if the column is not owned by this Grid
+     * @see #refreshColumn(Column, Collection)
+     */
+    @SafeVarargs
+    public final void refreshColumn(Column<T> column, T... items) {
+        refreshColumn(column, Arrays.asList(items));
+    }
+
+    /**
+     * Queues sending the data of the given column for the given items to the
+     * client. Items that are not on the client when the queue is flushed are
+     * ignored.
+     *
+     * @param column
+     *            the column to send the data of
+     * @param items
+     *            the items to send the data for
+     */
+    void refreshColumnData(Column<T> column, Collection<T> items) {
+        if (column.getDataGenerator() == null || !column.isVisible()
+                || items.isEmpty()) {
+            return;
+        }
+        if (pendingColumnData == null) {
+            pendingColumnData = new LinkedHashMap<>();
+            getElement().getNode().runWhenAttached(ui -> ui
+                    .beforeClientResponse(this, context -> flushColumnData()));
+        }
+        Map<Object, T> columnItems = pendingColumnData
+                .computeIfAbsent(column, key -> new LinkedHashMap<>());
+        items.forEach(item -> columnItems.put(getItemId(item), item));
+    }
+
+    private void flushColumnData() {
+        Map<Column<T>, Map<Object, T>> columnData = pendingColumnData;
+        pendingColumnData = null;
+        if (columnData == null) {
+            return;
+        }
+        KeyMapper<T> keyMapper = getDataCommunicator().getKeyMapper();
+        // One patch per item, containing the data of all refreshed columns
+        Map<Object, JsonObject> patches = new LinkedHashMap<>();
+        columnData.forEach((column, items) -> {
+            DataGenerator<T> generator = column.getDataGenerator();
+            if (generator == null || !column.isVisible()) {
+                return;
+            }
+            items.forEach((id, item) -> {
+                if (!keyMapper.has(item)) {
+                    return;
+                }
+                JsonObject patch = patches.computeIfAbsent(id, key -> {
+                    JsonObject json = Json.createObject();
+                    json.put("key", keyMapper.key(item));
+                    generateUniqueKeyData(item, json);
+                    return json;
+                });
+                generator.refreshData(item);
+                generator.generateData(item, patch);
+            });
+        });
+        if (!patches.isEmpty()) {
+            JsonArray array = Json.createArray();
+            patches.values()
+                    .forEach(patch -> array.set(array.length(), patch));
+            getElement().callJsFunction("$connector.updateFlatData", array,
+                    true);
+        }
+    }
+
+    private Object getItemId(T item) {
+        return getDataCommunicator().getDataProvider().getId(item);
+    }
+
     protected static int compareMaybeComparables(Object a, Object b) {
         if (hasCommonComparableBaseType(a, b)) {
             return compareComparables(a, b);
@@ -3339,6 +4034,7 @@ public class Grid<T> extends Component implements HasDataProvider<T>, HasStyle,
         Objects.requireNonNull(classNameGenerator,
                 "Class name generator can not be null");
         this.classNameGenerator = classNameGenerator;
+        rowClassNameGeneratorSet = true;
         getDataCommunicator().reset();
     }
 
@@ -3362,26 +4058,65 @@ public class Grid<T> extends Component implements HasDataProvider<T>, HasStyle,
         return classNameGenerator;
     }
 
+    private void addClassNameGeneratorColumn(Column<T> column) {
+        idToClassNameGeneratorColumnMap.put(column.getInternalId(), column);
+    }
+
     private void generateStyleData(T item, JsonObject jsonObject) {
-        JsonObject style = Json.createObject();
+        if (!rowClassNameGeneratorSet
+                && idToClassNameGeneratorColumnMap.isEmpty()) {
+            return;
+        }
+        JsonObject style = null;
 
-        String rowClassName = classNameGenerator.apply(item);
-        if (rowClassName != null) {
-            style.put("row", rowClassName);
+        if (rowClassNameGeneratorSet) {
+            String rowClassName = classNameGenerator.apply(item);
+            if (rowClassName != null) {
+                style = Json.createObject();
+                style.put("row", rowClassName);
+            }
         }
 
-        idToColumnMap.forEach((id, column) -> {
-            String cellClassName = column.getClassNameGenerator().apply(item);
+        for (Map.Entry<String, Column<T>> entry : idToClassNameGeneratorColumnMap
+                .entrySet()) {
+            String cellClassName = entry.getValue().getClassNameGenerator()
+                    .apply(item);
             if (cellClassName != null) {
-                style.put(id, cellClassName);
+                if (style == null) {
+                    style = Json.createObject();
+                }
+                style.put(entry.getKey(), cellClassName);
             }
-        });
+        }
 
-        if (style.keys().length > 0) {
+        if (style != null) {
             jsonObject.put("style", style);
         }
     }
 
+    private void updateDragAndDropDataGenerators() {
+        boolean dragAndDropAccessNeeded = getDropMode() != null
+                || isRowsDraggable();
+        if (dragAndDropAccessNeeded
+                && dragAndDropAccessGeneratorRegistration == null) {
+            dragAndDropAccessGeneratorRegistration = gridDataGenerator
+                    .addDataGenerator(this::generateRowsDragAndDropAccess);
+        } else if (!dragAndDropAccessNeeded
+                && dragAndDropAccessGeneratorRegistration != null) {
+            dragAndDropAccessGeneratorRegistration.remove();
+            dragAndDropAccessGeneratorRegistration = null;
+        }
+
+        boolean dragDataNeeded = !dragDataGenerators.isEmpty();
+        if (dragDataNeeded && dragDataGeneratorRegistration == null) {
+            dragDataGeneratorRegistration = gridDataGenerator
+                    .addDataGenerator(this::generateDragData);
+        } else if (!dragDataNeeded && dragDataGeneratorRegistration != null) {
+            dragDataGeneratorRegistration.remove();
+            dragDataGeneratorRegistration = null;
+        }
+    }
+
     private void generateRowsDragAndDropAccess(T item, JsonObject jsonObject) {
         if (getDropMode() != null && !dropFilter.test(item)) {
             jsonObject.put("dropDisabled", true);
@@ -3606,6 +4341,7 @@ public class Grid<T> extends Component implements HasDataProvider<T>, HasStyle,
         DropTarget.create(this).setActive(false);
         getElement().setProperty("dropMode",
                 dropMode == null ? null : dropMode.getClientName());
+        updateDragAndDropDataGenerators();
     }
 
     /**
@@ -3635,6 +4371,7 @@ public class Grid<T> extends Component implements HasDataProvider<T>, HasStyle,
         // addMobileDndPolyfillIfNeeded indirectly.
         DragSource.create(this).setDraggable(false);
         getElement().setProperty("rowsDraggable", rowsRraggable);
+        updateDragAndDropDataGenerators();
     }
 
     /**
@@ -3726,17 +4463,23 @@ public class Grid<T> extends Component implements HasDataProvider<T>, HasStyle,
      *            Type of the generated data. The generated value will be
      *            accessible during drop using this type.
      * @param dragDataGenerator
-     *            Function to be executed on row data generation.
+     *            Function to be executed on row data generation, or
+     *            {@code null} to remove the generator of the given type.
      */
     public void setDragDataGenerator(String type,
             SerializableFunction<T, String> dragDataGenerator) {
-        this.dragDataGenerators.put(type, dragDataGenerator);
+        if (dragDataGenerator == null) {
+            this.dragDataGenerators.remove(type);
+        } else {
+            this.dragDataGenerators.put(type, dragDataGenerator);
+        }
 
         JsonArray types = Json.createArray();
 
         this.dragDataGenerators.keySet()
                 .forEach(t -> types.set(types.length(), t));
         this.getElement().setPropertyJson("__dragDataTypes", types);
+        updateDragAndDropDataGenerators();
         getDataCommunicator().reset();
     }
 
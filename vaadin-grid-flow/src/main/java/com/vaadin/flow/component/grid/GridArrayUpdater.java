@@ -38,6 +38,7 @@ public interface GridArrayUpdater extends ArrayUpdater {
 
         private String uniqueKeyProperty;
         private SerializableSupplier<Boolean> hasExpandedItems;
+        private boolean compactItemEncoding;
 
         public UpdateQueueData(Element element, String uniqueKeyProperty) {
             this.element = element;
@@ -64,6 +65,14 @@ public interface GridArrayUpdater extends ArrayUpdater {
                 SerializableSupplier<Boolean> hasExpandedItems) {
             this.hasExpandedItems = hasExpandedItems;
         }
+
+        public boolean isCompactItemEncoding() {
+            return compactItemEncoding;
+        }
+
+        public void setCompactItemEncoding(boolean compactItemEncoding) {
+            this.compactItemEncoding = compactItemEncoding;
+        }
     }
 
     /**
@@ -15,6 +15,8 @@
  */
 package com.vaadin.flow.component.grid;
 
+import java.util.Set;
+
 import com.vaadin.flow.data.selection.SelectionModel;
 
 /**
@@ -40,4 +42,23 @@ public interface GridSelectionModel<T> extends SelectionModel<Grid<T>, T> {
      *            the item beign deselected
      */
     void deselectFromClient(T item);
+
+    /**
+     * Handles a batch of selection changes that originates from the client.
+     * <p>
+     * The default implementation handles the items one by one with
+     * {@link #deselectFromClient(Object)} and
+     * {@link #selectFromClient(Object)}. Implementations supporting multiple
+     * selected items should apply the whole batch at once.
+     *
+     * @param addedItems
+     *            the items being selected, not {@code null}
+     * @param removedItems
+     *            the items being deselected, not {@code null}
+     */
+    default void updateSelectionFromClient(Set<T> addedItems,
+            Set<T> removedItems) {
+        removedItems.forEach(this::deselectFromClient);
+        addedItems.forEach(this::selectFromClient);
+    }
 }
@@ -0,0 +1,352 @@
+/*
+ * Copyright 2000-2017 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.grid;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import com.vaadin.flow.function.SerializableFunction;
+import com.vaadin.flow.function.SerializableSupplier;
+
+/**
+ * Ordered, id-keyed storage for the items of a multi selection.
+ * <p>
+ * The state is either a list of explicitly selected items or, after
+ * {@link #replace(boolean) selecting everything}, an inverted list of the
+ * items excluded from an "all items" selection. In the inverted mode the
+ * selection is a rule rather than a list: every item that is not excluded is
+ * selected, including items added to the data source after everything was
+ * selected. The selected items are then never materialized by the state;
+ * they are streamed from the data source on demand.
+ * <p>
+ * Changes are applied in place and proportional to their own size. Each
+ * change leaves behind a small undo record so that {@link #snapshot()
+ * snapshots} of earlier states can be reconstructed lazily, only when they
+ * are actually read. A snapshot that is never read costs nothing but keeps
+ * the undo records of the changes made after it reachable for as long as the
+ * snapshot itself is referenced.
+ *
+ * @author Vaadin Ltd.
+ *
+ * @param <T>
+ *            the type of the selected items
+ */
+final class MultiSelectionState<T> implements Serializable {
+
+    private static final class Entry<T> implements Serializable {
+        private final Object id;
+        private final T item;
+        private final long order;
+
+        private Entry(Object id, T item, long order) {
+            this.id = id;
+            this.item = item;
+            this.order = order;
+        }
+    }
+
+    /**
+     * Undo record of a single change. The state always holds an empty record
+     * to be filled by the next change; snapshots remember the record that was
+     * current when they were taken and follow the {@code next} links to undo
+     * everything that happened since.
+     */
+    private static final class Change<T> implements Serializable {
+        private final List<Object> addedIds = new ArrayList<>();
+        private final Map<Object, Entry<T>> removedEntries = new LinkedHashMap<>();
+        private Map<Object, Entry<T>> replacedEntries;
+        private boolean replacedInverted;
+        private Change<T> next;
+    }
+
+    /*
+     * Supplies a function streaming all items of the current data source
+     * except the ones with the given ids.
+     */
+    private final SerializableSupplier<SerializableFunction<Set<Object>, Stream<T>>> allItemsExcept;
+
+    /*
+     * The explicitly selected items, or the excluded items when inverted.
+     * The map is replaced rather than cleared so that undo records can keep
+     * referring to the previous one.
+     */
+    private Map<Object, Entry<T>> entries = new LinkedHashMap<>();
+    private boolean inverted;
+    private long nextOrder;
+    private Change<T> currentChange = new Change<>();
+
+    /**
+     * Creates a new empty selection state.
+     *
+     * @param allItemsExcept
+     *            supplier of a function for streaming all items of the
+     *            current data source except the ones with the given ids, used
+     *            for enumerating the selection in the inverted mode
+     */
+    MultiSelectionState(
+            SerializableSupplier<SerializableFunction<Set<Object>, Stream<T>>> allItemsExcept) {
+        this.allItemsExcept = allItemsExcept;
+    }
+
+    /**
+     * Returns whether an item with the given id is selected. In the
+     * {@link #isInverted() inverted} mode, any id that is not excluded is
+     * selected, without checking it against the data source.
+     *
+     * @param id
+     *            the data provider id of the item
+     * @return {@code true} if the item is selected
+     */
+    boolean contains(Object id) {
+        return inverted != entries.containsKey(id);
+    }
+
+    /**
+     * Returns whether the selection is stored as all items except the
+     * excluded ones.
+     *
+     * @return {@code true} if the selection is inverted
+     */
+    boolean isInverted() {
+        return inverted;
+    }
+
+    /**
+     * Gets the number of explicitly selected items, or the number of excluded
+     * items if the selection is {@link #isInverted() inverted}.
+     *
+     * @return the number of stored entries
+     */
+    int getEntryCount() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the first selected item in selection order.
+     *
+     * @return the first selected item, or an empty optional
+     */
+    Optional<T> getFirst() {
+        if (inverted) {
+            return allItemsExcept.get().apply(entries.keySet()).findFirst();
+        }
+        Iterator<Entry<T>> iterator = entries.values().iterator();
+        return iterator.hasNext() ? Optional.of(iterator.next().item)
+                : Optional.empty();
+    }
+
+    /**
+     * Applies a change to the selection. Removals are applied before
+     * additions. An added item whose id is already selected replaces the
+     * previous instance without changing its position.
+     *
+     * @param addedItems
+     *            the items to add, keyed by id
+     * @param removedItems
+     *            the items to remove, keyed by id
+     */
+    void update(Map<Object, T> addedItems, Map<Object, T> removedItems) {
+        if (inverted) {
+            // Selecting removes an exclusion and deselecting adds one
+            apply(removedItems, addedItems);
+        } else {
+            apply(addedItems, removedItems);
+        }
+    }
+
+    /**
+     * Replaces the whole selection in constant time with either all items or
+     * no items.
+     *
+     * @param selectAll
+     *            {@code true} to select all items, {@code false} to deselect
+     *            all items
+     */
+    void replace(boolean selectAll) {
+        Change<T> change = currentChange;
+        change.replacedEntries = entries;
+        change.replacedInverted = inverted;
+        entries = new LinkedHashMap<>();
+        inverted = selectAll;
+        commit(change);
+    }
+
+    /**
+     * Gets an unmodifiable snapshot of the current selection. The snapshot
+     * is not affected by later changes, but the copy is only made when the
+     * snapshot is first read. A snapshot of an inverted selection is copied
+     * once from the items of the data source that was current when the
+     * snapshot was taken.
+     *
+     * @return a snapshot of the selected items in selection order
+     */
+    Set<T> snapshot() {
+        return new Snapshot<>(this, currentChange, allItemsExcept.get());
+    }
+
+    /**
+     * Gets an unmodifiable copy of the current selection. The copy of an
+     * inverted selection is made from the current items of the data source.
+     *
+     * @return a copy of the selected items in selection order
+     */
+    Set<T> copy() {
+        Set<T> copy = new LinkedHashSet<>();
+        if (inverted) {
+            allItemsExcept.get().apply(entries.keySet()).forEach(copy::add);
+        } else {
+            entries.values().forEach(entry -> copy.add(entry.item));
+        }
+        return Collections.unmodifiableSet(copy);
+    }
+
+    private void apply(Map<Object, T> putItems, Map<Object, T> removeItems) {
+        Change<T> change = currentChange;
+        for (Object id : removeItems.keySet()) {
+            Entry<T> removed = entries.remove(id);
+            if (removed != null) {
+                change.removedEntries.putIfAbsent(id, removed);
+            }
+        }
+        putItems.forEach((id, item) -> {
+            Entry<T> previous = entries.get(id);
+            long order = previous == null ? nextOrder++ : previous.order;
+            if (previous != null) {
+                change.removedEntries.putIfAbsent(id, previous);
+            }
+            entries.put(id, new Entry<>(id, item, order));
+            change.addedIds.add(id);
+        });
+        commit(change);
+    }
+
+    private void commit(Change<T> change) {
+        change.next = new Change<>();
+        currentChange = change.next;
+    }
+
+    /**
+     * Restores the entries as they were when the given change record was
+     * current, in selection order. The mode of the restored state is
+     * written to the first element of the given array.
+     */
+    private Map<Object, Entry<T>> restore(Change<T> since,
+            boolean[] restoredInverted) {
+        List<Change<T>> changes = new ArrayList<>();
+        for (Change<T> change = since; change != currentChange;
+                change = change.next) {
+            changes.add(change);
+        }
+        Map<Object, Entry<T>> restored = new LinkedHashMap<>(entries);
+        boolean wasInverted = inverted;
+        boolean reorder = false;
+        for (int i = changes.size() - 1; i >= 0; i--) {
+            Change<T> change = changes.get(i);
+            if (change.replacedEntries != null) {
+                restored = new LinkedHashMap<>(change.replacedEntries);
+                wasInverted = change.replacedInverted;
+                reorder = false;
+                continue;
+            }
+            change.addedIds.forEach(restored::remove);
+            restored.putAll(change.removedEntries);
+            reorder |= !change.removedEntries.isEmpty();
+        }
+        if (reorder) {
+            List<Entry<T>> sorted = new ArrayList<>(restored.values());
+            sorted.sort(Comparator.comparingLong(entry -> entry.order));
+            restored = new LinkedHashMap<>();
+            for (Entry<T> entry : sorted) {
+                restored.put(entry.id, entry);
+            }
+        }
+        restoredInverted[0] = wasInverted;
+        return restored;
+    }
+
+    private static final class Snapshot<T> extends AbstractSet<T>
+            implements Serializable {
+        private MultiSelectionState<T> state;
+        private Change<T> since;
+        private SerializableFunction<Set<Object>, Stream<T>> allItemsExcept;
+        private Set<T> items;
+
+        private Snapshot(MultiSelectionState<T> state, Change<T> since,
+                SerializableFunction<Set<Object>, Stream<T>> allItemsExcept) {
+            this.state = state;
+            this.since = since;
+            this.allItemsExcept = allItemsExcept;
+        }
+
+        private Set<T> resolve() {
+            if (since == null) {
+                return items;
+            }
+            boolean[] inverted = new boolean[1];
+            Map<Object, Entry<T>> restored = state.restore(since, inverted);
+            Set<T> copy = new LinkedHashSet<>();
+            if (inverted[0]) {
+                allItemsExcept.apply(new HashSet<>(restored.keySet()))
+                        .forEach(copy::add);
+            } else {
+                restored.values().forEach(entry -> copy.add(entry.item));
+            }
+            items = Collections.unmodifiableSet(copy);
+            // Release the undo records once the snapshot has been resolved
+            state = null;
+            since = null;
+            allItemsExcept = null;
+            return items;
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            // The set is unmodifiable, so is its iterator
+            return resolve().iterator();
+        }
+
+        @Override
+        public int size() {
+            return resolve().size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return resolve().contains(o);
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return resolve().isEmpty();
+        }
+
+        private Object writeReplace() {
+            return resolve();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.grid;
+
+import java.io.Serializable;
+
+/**
+ * Strategy for deciding how many rows {@link Grid} fetches around the rows
+ * that the client needs.
+ * <p>
+ * By default, the client requests the rows in its viewport and one viewport
+ * worth of rows on each side. When a strategy is set with
+ * {@link Grid#setPrefetchStrategy(PrefetchStrategy)}, the client requests
+ * only the pages it needs and reports its scroll velocity, and the strategy
+ * decides the number of rows to fetch before and after them.
+ *
+ * @author Vaadin Ltd.
+ * @see AdaptivePrefetchStrategy
+ */
+@FunctionalInterface
+public interface PrefetchStrategy extends Serializable {
+
+    /**
+     * The state of the viewport of the client when it requests rows.
+     */
+    final class Viewport implements Serializable {
+        private final int start;
+        private final int length;
+        private final int visibleRowCount;
+        private final double velocity;
+        private final int pageSize;
+        private final double pageFetchMillis;
+
+        /**
+         * Creates a new viewport state.
+         *
+         * @param start
+         *            the index of the first row needed by the client
+         * @param length
+         *            the number of rows needed by the client
+         * @param visibleRowCount
+         *            the number of rows rendered in the viewport
+         * @param velocity
+         *            the scroll velocity in rows per second, negative when
+         *            scrolling up
+         * @param pageSize
+         *            the page size of the grid
+         * @param pageFetchMillis
+         *            the average time of fetching a page from the data
+         *            provider in milliseconds, or {@code 0} if not measured
+         */
+        public Viewport(int start, int length, int visibleRowCount,
+                double velocity, int pageSize, double pageFetchMillis) {
+            this.start = start;
+            this.length = length;
+            this.visibleRowCount = visibleRowCount;
+            this.velocity = velocity;
+            this.pageSize = pageSize;
+            this.pageFetchMillis = pageFetchMillis;
+        }
+
+        /**
+         * Gets the index of the first row needed by the client.
+         *
+         * @return the index of the first needed row
+         */
+        public int getStart() {
+            return start;
+        }
+
+        /**
+         * Gets the number of rows needed by the client. The needed rows are
+         * the visible rows, rounded to whole pages.
+         *
+         * @return the number of needed rows
+         */
+        public int getLength() {
+            return length;
+        }
+
+        /**
+         * Gets the number of rows rendered in the viewport of the client.
+         *
+         * @return the number of rendered rows
+         */
+        public int getVisibleRowCount() {
+            return visibleRowCount;
+        }
+
+        /**
+         * Gets the scroll velocity reported by the client.
+         *
+         * @return the scroll velocity in rows per second, negative when
+         *         scrolling up
+         */
+        public double getVelocity() {
+            return velocity;
+        }
+
+        /**
+         * Gets the page size of the grid.
+         *
+         * @return the page size
+         */
+        public int getPageSize() {
+            return pageSize;
+        }
+
+        /**
+         * Gets the average time of fetching a page from the data provider, as
+         * measured on the server.
+         *
+         * @return the average page fetch time in milliseconds, or {@code 0}
+         *         if not measured
+         */
+        public double getPageFetchMillis() {
+            return pageFetchMillis;
+        }
+    }
+
+    /**
+     * The number of rows to fetch before and after the needed rows.
+     */
+    final class Window implements Serializable {
+        private final int before;
+        private final int after;
+
+        /**
+         * Creates a new prefetch window.
+         *
+         * @param before
+         *            the number of rows to fetch before the needed rows, not
+         *            negative
+         * @param after
+         *            the number of rows to fetch after the needed rows, not
+         *            negative
+         */
+        public Window(int before, int after) {
+            if (before < 0 || after < 0) {
+                throw new IllegalArgumentException(
+                        "The number of prefetched rows cannot be negative");
+            }
+            this.before = before;
+            this.after = after;
+        }
+
+        /**
+         * Gets the number of rows to fetch before the needed rows.
+         *
+         * @return the number of rows before
+         */
+        public int getBefore() {
+            return before;
+        }
+
+        /**
+         * Gets the number of rows to fetch after the needed rows.
+         *
+         * @return the number of rows after
+         */
+        public int getAfter() {
+            return after;
+        }
+    }
+
+    /**
+     * Decides the number of rows to fetch around the rows needed by the
+     * client. The fetched range is extended to whole pages.
+     *
+     * @param viewport
+     *            the state of the viewport of the client
+     * @return the number of rows to fetch before and after the needed rows
+     */
+    Window getPrefetchWindow(Viewport viewport);
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2000-2017 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.grid;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import com.vaadin.flow.component.Component;
+import com.vaadin.flow.data.provider.DataGenerator;
+import com.vaadin.flow.data.provider.DataKeyMapper;
+import com.vaadin.flow.data.renderer.ComponentRenderer;
+import com.vaadin.flow.data.renderer.Rendering;
+import com.vaadin.flow.dom.Element;
+import com.vaadin.flow.function.SerializableBiConsumer;
+import com.vaadin.flow.function.SerializableFunction;
+
+import elemental.json.JsonObject;
+
+/**
+ * Component renderer that reuses the components of rows that are no longer
+ * loaded on the client for new rows, instead of creating a new component for
+ * each row. The components of removed rows are kept in a bounded pool and
+ * bound to their new items with an update callback.
+ * <p>
+ * The update callback must reset all of the state of the component that
+ * depends on the item, since the component may have been used for another
+ * item before.
+ *
+ * @author Vaadin Ltd.
+ *
+ * @param <COMPONENT>
+ *            the type of the rendered component
+ * @param <SOURCE>
+ *            the type of the input model object
+ */
+public class RecyclingComponentRenderer<COMPONENT extends Component, SOURCE>
+        extends ComponentRenderer<COMPONENT, SOURCE> {
+
+    /**
+     * The default maximum number of unused components kept for reuse.
+     */
+    public static final int DEFAULT_POOL_SIZE = 150;
+
+    private final SerializableBiConsumer<COMPONENT, SOURCE> componentUpdater;
+    private final Deque<COMPONENT> pool = new ArrayDeque<>();
+    private int poolSize = DEFAULT_POOL_SIZE;
+
+    // The component returned by the latest createComponent call
+    private COMPONENT createdComponent;
+
+    /**
+     * Creates a new renderer.
+     *
+     * @param componentFactory
+     *            the function creating a new component for an item when there
+     *            is no unused component in the pool, not {@code null}
+     * @param componentUpdater
+     *            the callback binding an existing component to an item, not
+     *            {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    public RecyclingComponentRenderer(
+            SerializableFunction<SOURCE, COMPONENT> componentFactory,
+            SerializableBiConsumer<COMPONENT, SOURCE> componentUpdater) {
+        super(componentFactory, (component, item) -> {
+            componentUpdater.accept((COMPONENT) component, item);
+            return component;
+        });
+        this.componentUpdater = componentUpdater;
+    }
+
+    /**
+     * Sets the maximum number of unused components kept for reuse. Components
+     * of removed rows exceeding this size are discarded.
+     *
+     * @param poolSize
+     *            the maximum number of pooled components, not negative
+     */
+    public void setPoolSize(int poolSize) {
+        if (poolSize < 0) {
+            throw new IllegalArgumentException(
+                    "The pool size can't be negative. Was " + poolSize);
+        }
+        this.poolSize = poolSize;
+        while (pool.size() > poolSize) {
+            pool.removeLast();
+        }
+    }
+
+    /**
+     * Gets the maximum number of unused components kept for reuse.
+     *
+     * @return the maximum number of pooled components
+     */
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    @Override
+    public COMPONENT createComponent(SOURCE item) {
+        COMPONENT component = pool.pollFirst();
+        if (component == null) {
+            component = super.createComponent(item);
+        } else {
+            componentUpdater.accept(component, item);
+        }
+        createdComponent = component;
+        return component;
+    }
+
+    @Override
+    public Rendering<SOURCE> render(Element container,
+            DataKeyMapper<SOURCE> keyMapper, Element contentTemplate) {
+        Rendering<SOURCE> rendering = super.render(container, keyMapper,
+                contentTemplate);
+        Optional<DataGenerator<SOURCE>> dataGenerator = rendering
+                .getDataGenerator();
+        if (keyMapper == null || !dataGenerator.isPresent()) {
+            return rendering;
+        }
+        return new RecyclingRendering(rendering, new RecyclingDataGenerator(
+                dataGenerator.get(), keyMapper));
+    }
+
+    private void release(COMPONENT component) {
+        if (component != null && component.getElement().getParent() == null
+                && pool.size() < poolSize) {
+            pool.addFirst(component);
+        }
+    }
+
+    /**
+     * Keeps track of the component rendered for each item, so that it can be
+     * put to the pool when the item is removed.
+     */
+    private class RecyclingDataGenerator implements DataGenerator<SOURCE> {
+        private final DataGenerator<SOURCE> delegate;
+        private final DataKeyMapper<SOURCE> keyMapper;
+        private final Map<String, COMPONENT> componentsByKey = new HashMap<>();
+
+        private RecyclingDataGenerator(DataGenerator<SOURCE> delegate,
+                DataKeyMapper<SOURCE> keyMapper) {
+            this.delegate = delegate;
+            this.keyMapper = keyMapper;
+        }
+
+        @Override
+        public void generateData(SOURCE item, JsonObject jsonObject) {
+            createdComponent = null;
+            delegate.generateData(item, jsonObject);
+            if (createdComponent != null) {
+                componentsByKey.put(keyMapper.key(item), createdComponent);
+                createdComponent = null;
+            }
+        }
+
+        @Override
+        public void refreshData(SOURCE item) {
+            delegate.refreshData(item);
+        }
+
+        @Override
+        public void destroyData(SOURCE item) {
+            COMPONENT component = keyMapper.has(item)
+                    ? componentsByKey.remove(keyMapper.key(item))
+                    : null;
+            delegate.destroyData(item);
+            release(component);
+        }
+
+        @Override
+        public void destroyAllData() {
+            delegate.destroyAllData();
+            componentsByKey.values()
+                    .forEach(RecyclingComponentRenderer.this::release);
+            componentsByKey.clear();
+        }
+    }
+
+    private class RecyclingRendering implements Rendering<SOURCE> {
+        private final Rendering<SOURCE> delegate;
+        private final DataGenerator<SOURCE> dataGenerator;
+
+        private RecyclingRendering(Rendering<SOURCE> delegate,
+                DataGenerator<SOURCE> dataGenerator) {
+            this.delegate = delegate;
+            this.dataGenerator = dataGenerator;
+        }
+
+        @Override
+        public Optional<DataGenerator<SOURCE>> getDataGenerator() {
+            return Optional.of(dataGenerator);
+        }
+
+        @Override
+        public Element getTemplateElement() {
+            return delegate.getTemplateElement();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License. 
+ */
+package com.vaadin.flow.component.treegrid;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Fetches the children of several parent items in one backend call. Used by
+ * {@link TreeGrid#expandRecursively(Collection, int)} and
+ * {@link TreeGrid#collapseRecursively(Collection, int)} for resolving one
+ * hierarchy level at a time instead of querying each parent separately.
+ *
+ * @author Vaadin Ltd
+ *
+ * @param <T>
+ *            the grid bean type
+ *
+ * @see TreeGrid#setChildrenBatchProvider(ChildrenBatchProvider)
+ */
+@FunctionalInterface
+public interface ChildrenBatchProvider<T> extends Serializable {
+
+    /**
+     * Fetches the unfiltered children of the given parents. The children must
+     * be the same as the ones returned by the data provider of the grid for
+     * each parent.
+     *
+     * @param parents
+     *            the parent items to fetch the children for, not empty
+     * @return a map from the id of each parent, as returned by
+     *         {@link com.vaadin.flow.data.provider.DataProvider#getId(Object)
+     *         DataProvider.getId}, to its children; parents without children
+     *         may be left out of the map or mapped to an empty collection
+     */
+    Map<Object, ? extends Collection<T>> fetchChildren(Collection<T> parents);
+}
@@ -18,7 +18,10 @@ package com.vaadin.flow.component.treegrid;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Optional;
@@ -38,6 +41,7 @@ import com.vaadin.flow.data.provider.CompositeDataGenerator;
 import com.vaadin.flow.data.provider.DataChangeEvent;
 import com.vaadin.flow.data.provider.DataCommunicator;
 import com.vaadin.flow.data.provider.DataProvider;
+import com.vaadin.flow.data.provider.KeyMapper;
 import com.vaadin.flow.data.provider.hierarchy.HasHierarchicalDataProvider;
 import com.vaadin.flow.data.provider.hierarchy.HierarchicalArrayUpdater.HierarchicalUpdate;
 import com.vaadin.flow.data.provider.hierarchy.HierarchicalDataCommunicator;
@@ -52,7 +56,6 @@ import com.vaadin.flow.function.SerializableComparator;
 import com.vaadin.flow.function.SerializablePredicate;
 import com.vaadin.flow.function.SerializableSupplier;
 import com.vaadin.flow.function.ValueProvider;
-import com.vaadin.flow.internal.JsonUtils;
 import com.vaadin.flow.shared.Registration;
 
 import elemental.json.JsonArray;
@@ -80,8 +83,7 @@ public class TreeGrid<T> extends Grid<T>
 
         @Override
         public void set(int start, List<JsonValue> items, String parentKey) {
-            enqueue("$connector.set", start,
-                    items.stream().collect(JsonUtils.asArray()), parentKey);
+            enqueue("$connector.set", start, encodeItems(items), parentKey);
         }
 
         @Override
@@ -123,6 +125,7 @@ public class TreeGrid<T> extends Grid<T>
         public void initialize() {
             initConnector();
             updateSelectionModeOnClient();
+            updateConnectorSettingsOnClient();
             getDataCommunicator().setRequestedRange(0, getPageSize());
         }
 
@@ -137,11 +140,34 @@ public class TreeGrid<T> extends Grid<T>
         }
     }
 
-    private final ValueProvider<T, String> defaultUniqueKeyProvider = item -> String
-            .valueOf(item.hashCode());
+    private final ValueProvider<T, String> defaultUniqueKeyProvider = this::getDefaultUniqueKey;
+
+    /*
+     * Keys of the expanded items, by data provider id. The client tracks the
+     * expanded items by key, so an expanded item must get the same key back
+     * after it has been scrolled out of view and its key has been released.
+     */
+    private final Map<Object, String> expandedItemKeys = new HashMap<>();
+    private long nextUniqueKey;
 
     private Registration dataProviderRegistration;
 
+    private ChildrenBatchProvider<T> childrenBatchProvider;
+
+    private int parentRequestDelay = 20;
+    private int parentRequestBatchMaxSize = 20;
+    private boolean subCacheRequestDelayed = true;
+    private boolean adaptiveParentRequestBatching;
+    private boolean parentRequestSettingsPending;
+    private int pageCacheLimit;
+    /*
+     * Exponential moving averages of the server time of handling a batch of
+     * parent requests and a single parent request, in milliseconds. Negative
+     * until measured.
+     */
+    private double parentRequestBatchMillis = -1;
+    private double parentRequestMillis = -1;
+
     /**
      * Creates a new {@code TreeGrid} without support for creating columns based
      * on property names. Use an alternative constructor, such as
@@ -217,8 +243,9 @@ public class TreeGrid<T> extends Grid<T>
      * Sets property name and value provider for unique key in row's generated
      * JSON.
      * <p>
-     * Default property name is 'key' and value is generated by bean's hashCode
-     * method.
+     * Default property name is 'key' and value is a compact key that is
+     * unique within this grid and does not depend on the bean's
+     * {@code hashCode} method.
      * </p>
      * 
      * @param propertyName
@@ -245,6 +272,44 @@ public class TreeGrid<T> extends Grid<T>
                 .orElse(defaultUniqueKeyProvider);
     }
 
+    /*
+     * Called by the key mapper only when the item has no key yet, so keys are
+     * generated once per item instead of once per serialization.
+     */
+    private String getDefaultUniqueKey(T item) {
+        KeyMapper<T> keyMapper = getDataCommunicator().getKeyMapper();
+        if (keyMapper.has(item)) {
+            return keyMapper.key(item);
+        }
+        Object id = getDataProvider().getId(item);
+        String key = expandedItemKeys.get(id);
+        if (key == null) {
+            key = Long.toString(nextUniqueKey++, Character.MAX_RADIX);
+            if (getDataCommunicator().isExpanded(item)) {
+                expandedItemKeys.put(id, key);
+            }
+        }
+        return key;
+    }
+
+    private void retainExpandedItemKeys(Collection<T> expandedItems) {
+        if (super.getUniqueKeyProvider() != null) {
+            return;
+        }
+        KeyMapper<T> keyMapper = getDataCommunicator().getKeyMapper();
+        expandedItems.stream().filter(keyMapper::has)
+                .forEach(item -> expandedItemKeys.put(
+                        getDataProvider().getId(item), keyMapper.key(item)));
+    }
+
+    private void releaseExpandedItemKeys(Collection<T> collapsedItems) {
+        if (expandedItemKeys.isEmpty()) {
+            return;
+        }
+        collapsedItems.forEach(item -> expandedItemKeys
+                .remove(getDataProvider().getId(item)));
+    }
+
     /**
      * Adds an ExpandEvent listener to this TreeGrid.
      *
@@ -287,6 +352,7 @@ public class TreeGrid<T> extends Grid<T>
         if (dataProviderRegistration != null) {
             dataProviderRegistration.remove();
         }
+        expandedItemKeys.clear();
         dataProviderRegistration = dataProvider.addDataProviderListener(e -> {
             if (!(e instanceof DataChangeEvent.DataRefreshEvent)) {
                 // refreshAll was called
@@ -510,37 +576,143 @@ public class TreeGrid<T> extends Grid<T>
     @ClientCallable(DisabledUpdateMode.ALWAYS)
     private void setParentRequestedRange(int start, int length,
             String parentKey) {
-        T item = getDataCommunicator().getKeyMapper().get(parentKey);
-        if (item != null) {
-            getDataCommunicator().setParentRequestedRange(start, length, item);
-        }
+        long requestStart = System.nanoTime();
+        requestParentRange(start, length, parentKey);
+        measureParentRequests(requestStart, 1);
     }
 
     @ClientCallable(DisabledUpdateMode.ALWAYS)
     private void setParentRequestedRanges(JsonArray array) {
+        long requestStart = System.nanoTime();
         for (int index = 0; index < array.length(); index++) {
             JsonObject object = array.getObject(index);
-            setParentRequestedRange((int) object.getNumber("firstIndex"),
+            requestParentRange((int) object.getNumber("firstIndex"),
                     (int) object.getNumber("size"),
                     object.getString("parentKey"));
         }
+        measureParentRequests(requestStart, array.length());
     }
 
-    @ClientCallable(DisabledUpdateMode.ONLY_WHEN_ENABLED)
-    private void updateExpandedState(String key, boolean expanded) {
-        T item = getDataCommunicator().getKeyMapper().get(key);
+    @ClientCallable(DisabledUpdateMode.ALWAYS)
+    private void resendParentRequestedRange(int start, int length,
+            String parentKey) {
+        T item = getDataCommunicator().getKeyMapper().get(parentKey);
+        if (item == null) {
+            return;
+        }
+        // The client has evicted the range from its cache. Passivate it first
+        // and request it again after that flush, within the same response.
+        getDataCommunicator().setParentRequestedRange(0, 0, item);
+        getUI().ifPresent(ui -> ui.beforeClientResponse(this,
+                context -> requestParentRange(start, length, parentKey)));
+    }
+
+    private void requestParentRange(int start, int length, String parentKey) {
+        T item = getDataCommunicator().getKeyMapper().get(parentKey);
         if (item != null) {
-            if (expanded) {
-                expand(Arrays.asList(item), true);
-            } else {
-                collapse(Arrays.asList(item), true);
+            getDataCommunicator().setParentRequestedRange(start, length, item);
+        }
+    }
+
+    /**
+     * Measures the server time of handling the given number of parent
+     * requests, from the given start until the requested ranges have been
+     * flushed. Must be called after the ranges have been requested.
+     */
+    private void measureParentRequests(long start, int count) {
+        if (!adaptiveParentRequestBatching || count == 0) {
+            return;
+        }
+        // Runs after the flush of the data communicator, which was registered
+        // when the ranges were requested
+        getUI().ifPresent(ui -> ui.beforeClientResponse(this,
+                context -> adaptParentRequestBatching(
+                        (System.nanoTime() - start) / 1_000_000d, count)));
+    }
+
+    private void adaptParentRequestBatching(double millis, int count) {
+        parentRequestBatchMillis = parentRequestBatchMillis < 0 ? millis
+                : 0.7 * parentRequestBatchMillis + 0.3 * millis;
+        double perRequest = millis / count;
+        parentRequestMillis = parentRequestMillis < 0 ? perRequest
+                : 0.7 * parentRequestMillis + 0.3 * perRequest;
+
+        // The longer a batch takes, the less waiting for more requests costs
+        int delay = (int) Math.round(Math.max(10,
+                Math.min(200, parentRequestBatchMillis / 2)));
+        // Keep a single batch within about 100 ms of server time
+        int batchMaxSize = (int) Math.max(5, Math.min(100,
+                100 / Math.max(parentRequestMillis, 1)));
+        if (delay != parentRequestDelay
+                || batchMaxSize != parentRequestBatchMaxSize) {
+            parentRequestDelay = delay;
+            parentRequestBatchMaxSize = batchMaxSize;
+            updateParentRequestSettings();
+        }
+    }
+
+    private void updateParentRequestSettings() {
+        // Otherwise sent when the connector is initialized
+        if (parentRequestSettingsPending || !getUI().isPresent()) {
+            return;
+        }
+        parentRequestSettingsPending = true;
+        getUI().get().beforeClientResponse(this, context -> {
+            parentRequestSettingsPending = false;
+            sendParentRequestSettings();
+        });
+    }
+
+    private void sendParentRequestSettings() {
+        getElement().callJsFunction("$connector.setParentRequestSettings",
+                parentRequestDelay, parentRequestBatchMaxSize,
+                subCacheRequestDelayed);
+    }
+
+    @Override
+    protected void updateConnectorSettingsOnClient() {
+        super.updateConnectorSettingsOnClient();
+        sendParentRequestSettings();
+        if (pageCacheLimit > 0) {
+            getElement().callJsFunction("$connector.setPageCacheLimit",
+                    pageCacheLimit);
+        }
+    }
+
+    @ClientCallable(DisabledUpdateMode.ONLY_WHEN_ENABLED)
+    private void updateExpandedStates(JsonArray states) {
+        // The client sends the toggles in order, the last one for a key wins
+        Map<String, Boolean> expandedByKey = new LinkedHashMap<>();
+        for (int index = 0; index < states.length(); index++) {
+            JsonObject state = states.getObject(index);
+            expandedByKey.put(state.getString("key"),
+                    state.getBoolean("expanded"));
+        }
+        List<T> expandedItems = new ArrayList<>();
+        List<T> collapsedItems = new ArrayList<>();
+        expandedByKey.forEach((key, expanded) -> {
+            T item = getDataCommunicator().getKeyMapper().get(key);
+            if (item != null) {
+                (expanded ? expandedItems : collapsedItems).add(item);
             }
+        });
+        if (!collapsedItems.isEmpty()) {
+            collapse(collapsedItems, true);
+        }
+        if (!expandedItems.isEmpty()) {
+            expand(expandedItems, true);
         }
     }
 
     @ClientCallable(DisabledUpdateMode.ALWAYS)
-    private void confirmParentUpdate(int id, String parentKey) {
-        getDataCommunicator().confirmUpdate(id, parentKey);
+    private void confirmParentUpdates(JsonArray confirmations) {
+        // The client batches the acknowledgements of several updates
+        for (int index = 0; index < confirmations.length(); index++) {
+            JsonObject confirmation = confirmations.getObject(index);
+            getDataCommunicator().confirmUpdate(
+                    (int) confirmation.getNumber("id"),
+                    confirmation.getString("parentKey"));
+        }
     }
 
     /**
@@ -581,6 +753,7 @@ public class TreeGrid<T> extends Grid<T>
      */
     protected void expand(Collection<T> items, boolean userOriginated) {
         Collection<T> expandedItems = getDataCommunicator().expand(items);
+        retainExpandedItemKeys(expandedItems);
         fireEvent(new ExpandEvent<T, TreeGrid<T>>(this, userOriginated,
                 expandedItems));
     }
@@ -624,8 +797,8 @@ public class TreeGrid<T> extends Grid<T>
      * @since 8.4
      */
     public void expandRecursively(Collection<T> items, int depth) {
-        getDataCommunicator()
-                .expand(getItemsWithChildrenRecursively(items, depth));
+        retainExpandedItemKeys(getDataCommunicator()
+                .expand(getItemsWithChildrenRecursively(items, depth)));
     }
 
     /**
@@ -664,6 +837,7 @@ public class TreeGrid<T> extends Grid<T>
      */
     protected void collapse(Collection<T> items, boolean userOriginated) {
         Collection<T> collapsedItems = getDataCommunicator().collapse(items);
+        releaseExpandedItemKeys(collapsedItems);
         fireEvent(new CollapseEvent<T, TreeGrid<T>>(this, userOriginated,
                 collapsedItems));
     }
@@ -707,8 +881,196 @@ public class TreeGrid<T> extends Grid<T>
      * @since 8.4
      */
     public void collapseRecursively(Collection<T> items, int depth) {
-        getDataCommunicator()
-                .collapse(getItemsWithChildrenRecursively(items, depth));
+        releaseExpandedItemKeys(getDataCommunicator()
+                .collapse(getItemsWithChildrenRecursively(items, depth)));
+    }
+
+    /**
+     * Sets a provider for fetching the children of several items in one
+     * backend call. When set, {@link #expandRecursively(Collection, int)} and
+     * {@link #collapseRecursively(Collection, int)} resolve each level of the
+     * hierarchy with a single call to the provider instead of querying
+     * {@code hasChildren} and the children of each item separately.
+     * <p>
+     * The provider must return the same children as the data provider of this
+     * grid.
+     *
+     * @param childrenBatchProvider
+     *            the provider to use, or {@code null} to query the data
+     *            provider separately for each item
+     */
+    public void setChildrenBatchProvider(
+            ChildrenBatchProvider<T> childrenBatchProvider) {
+        this.childrenBatchProvider = childrenBatchProvider;
+    }
+
+    /**
+     * Gets the provider for fetching the children of several items in one
+     * backend call.
+     *
+     * @return the provider, or {@code null} if not set
+     * @see #setChildrenBatchProvider(ChildrenBatchProvider)
+     */
+    public ChildrenBatchProvider<T> getChildrenBatchProvider() {
+        return childrenBatchProvider;
+    }
+
+    /**
+     * Sets the delay for batching the requests for the children of several
+     * expanded items into one request. A longer delay means fewer requests,
+     * but a longer wait for the children to be shown. The default value is 20
+     * milliseconds.
+     *
+     * @param parentRequestDelay
+     *            the delay in milliseconds, or {@code 0} to send each request
+     *            immediately
+     * @throws IllegalArgumentException
+     *             if the delay is negative
+     * @see #setAdaptiveParentRequestBatching(boolean)
+     */
+    public void setParentRequestDelay(int parentRequestDelay) {
+        if (parentRequestDelay < 0) {
+            throw new IllegalArgumentException(
+                    "The parent request delay cannot be negative");
+        }
+        this.parentRequestDelay = parentRequestDelay;
+        updateParentRequestSettings();
+    }
+
+    /**
+     * Gets the delay for batching the requests for the children of several
+     * expanded items into one request.
+     *
+     * @return the delay in milliseconds
+     * @see #setParentRequestDelay(int)
+     */
+    public int getParentRequestDelay() {
+        return parentRequestDelay;
+    }
+
+    /**
+     * Sets the maximum number of requests for the children of expanded items
+     * that are sent in one batch. The default value is 20.
+     *
+     * @param parentRequestBatchMaxSize
+     *            the maximum batch size, not less than one
+     * @throws IllegalArgumentException
+     *             if the size is less than one
+     * @see #setAdaptiveParentRequestBatching(boolean)
+     */
+    public void setParentRequestBatchMaxSize(int parentRequestBatchMaxSize) {
+        if (parentRequestBatchMaxSize < 1) {
+            throw new IllegalArgumentException(
+                    "The parent request batch size cannot be less than one");
+        }
+        this.parentRequestBatchMaxSize = parentRequestBatchMaxSize;
+        updateParentRequestSettings();
+    }
+
+    /**
+     * Gets the maximum number of requests for the children of expanded items
+     * that are sent in one batch.
+     *
+     * @return the maximum batch size
+     * @see #setParentRequestBatchMaxSize(int)
+     */
+    public int getParentRequestBatchMaxSize() {
+        return parentRequestBatchMaxSize;
+    }
+
+    /**
+     * Sets whether the client defers loading the first page of children of
+     * each expanded item to the next animation frame, one item at a time.
+     * This keeps scrolling through many expanded items smooth, at the cost of
+     * showing their children later. Enabled by default.
+     *
+     * @param subCacheRequestDelayed
+     *            {@code true} to defer loading the children of expanded
+     *            items, {@code false} to load them immediately
+     */
+    public void setSubCacheRequestDelayed(boolean subCacheRequestDelayed) {
+        this.subCacheRequestDelayed = subCacheRequestDelayed;
+        updateParentRequestSettings();
+    }
+
+    /**
+     * Gets whether the client defers loading the first page of children of
+     * each expanded item.
+     *
+     * @return {@code true} if loading the children is deferred
+     * @see #setSubCacheRequestDelayed(boolean)
+     */
+    public boolean isSubCacheRequestDelayed() {
+        return subCacheRequestDelayed;
+    }
+
+    /**
+     * Sets whether the parent request delay and batch size are adjusted
+     * automatically from the measured server time of handling the requests.
+     * When enabled, the delay grows with the time of handling a batch, and
+     * the batch size is limited so that a batch takes about 100 milliseconds
+     * on the server. The values set with {@link #setParentRequestDelay(int)}
+     * and {@link #setParentRequestBatchMaxSize(int)} are then used until the
+     * first measurement. Disabled by default.
+     *
+     * @param adaptiveParentRequestBatching
+     *            {@code true} to adjust the batching automatically,
+     *            {@code false} to use the configured values
+     */
+    public void setAdaptiveParentRequestBatching(
+            boolean adaptiveParentRequestBatching) {
+        this.adaptiveParentRequestBatching = adaptiveParentRequestBatching;
+        parentRequestBatchMillis = -1;
+        parentRequestMillis = -1;
+    }
+
+    /**
+     * Gets whether the parent request delay and batch size are adjusted
+     * automatically.
+     *
+     * @return {@code true} if the batching is adjusted automatically
+     * @see #setAdaptiveParentRequestBatching(boolean)
+     */
+    public boolean isAdaptiveParentRequestBatching() {
+        return adaptiveParentRequestBatching;
+    }
+
+    /**
+     * Sets the maximum number of pages of children of expanded items that the
+     * client keeps in its cache. When the limit is exceeded, the client evicts
+     * the cached pages of the least recently used expanded items that have no
+     * rendered rows, and requests them again from the server when they are
+     * scrolled back into view. The root level items are not counted. By
+     * default, the cache is not limited.
+     *
+     * @param pageCacheLimit
+     *            the maximum number of cached pages, or {@code 0} for no
+     *            limit
+     * @throws IllegalArgumentException
+     *             if the limit is negative
+     */
+    public void setPageCacheLimit(int pageCacheLimit) {
+        if (pageCacheLimit < 0) {
+            throw new IllegalArgumentException(
+                    "The page cache limit cannot be negative");
+        }
+        this.pageCacheLimit = pageCacheLimit;
+        // Otherwise sent when the connector is initialized
+        if (getElement().getNode().isAttached()) {
+            getElement().callJsFunction("$connector.setPageCacheLimit",
+                    pageCacheLimit);
+        }
+    }
+
+    /**
+     * Gets the maximum number of pages of children of expanded items that the
+     * client keeps in its cache.
+     *
+     * @return the maximum number of cached pages, or {@code 0} if not limited
+     * @see #setPageCacheLimit(int)
+     */
+    public int getPageCacheLimit() {
+        return pageCacheLimit;
     }
 
     /**
@@ -720,6 +1082,12 @@ public class TreeGrid<T> extends Grid<T>
      * items while {@code getItemsWithChildrenRecursively(items, 2)} gets the
      * given items as well as their children and grandchildren.
      * </p>
+     * <p>
+     * The hierarchy is traversed breadth-first, so parents are always
+     * returned before their children. If a
+     * {@link #setChildrenBatchProvider(ChildrenBatchProvider) children batch
+     * provider} is set, each level is resolved with one call to it.
+     * </p>
      * 
      * @param items
      *            the items to expand recursively
@@ -731,18 +1099,36 @@ public class TreeGrid<T> extends Grid<T>
     protected Collection<T> getItemsWithChildrenRecursively(Collection<T> items,
             int depth) {
         List<T> itemsWithChildren = new ArrayList<>();
-        if (depth < 0) {
-            return itemsWithChildren;
-        }
-        items.stream().filter(getDataCommunicator()::hasChildren)
-                .forEach(item -> {
-                    itemsWithChildren.add(item);
-                    itemsWithChildren.addAll(
-                            getItemsWithChildrenRecursively(getDataProvider()
+        Collection<T> level = items;
+        for (int i = 0; i <= depth && !level.isEmpty(); i++) {
+            List<T> nextLevel = new ArrayList<>();
+            if (childrenBatchProvider != null) {
+                Map<Object, ? extends Collection<T>> children =
+                        childrenBatchProvider.fetchChildren(level);
+                for (T item : level) {
+                    Collection<T> itemChildren = children
+                            .get(getDataProvider().getId(item));
+                    if (itemChildren != null && !itemChildren.isEmpty()) {
+                        itemsWithChildren.add(item);
+                        nextLevel.addAll(itemChildren);
+                    }
+                }
+            } else {
+                boolean fetchChildren = i < depth;
+                for (T item : level) {
+                    if (getDataCommunicator().hasChildren(item)) {
+                        itemsWithChildren.add(item);
+                        if (fetchChildren) {
+                            getDataProvider()
                                     .fetchChildren(
                                             new HierarchicalQuery<>(null, item))
-                                    .collect(Collectors.toList()), depth - 1));
-                });
+                                    .forEach(nextLevel::add);
+                        }
+                    }
+                }
+            }
+            level = nextLevel;
+        }
         return itemsWithChildren;
     }
 
@@ -18,7 +18,8 @@ import { ItemCache } from '@vaadin/vaadin-grid/src/vaadin-grid-data-provider-mix
       ItemCache.prototype.ensureSubCacheForScaledIndex = tryCatchWrapper(function(scaledIndex) {
         if (!this.itemCaches[scaledIndex]) {
 
-          if(ensureSubCacheDelay) {
+          // The prototype is shared, so the setting is read from the grid of the cache
+          if(this.grid.$connector.isEnsureSubCacheDelayed()) {
             this.grid.$connector.beforeEnsureSubCacheForScaledIndex(this, scaledIndex);
           } else {
             this.doEnsureSubCacheForScaledIndex(scaledIndex);
@@ -34,12 +35,19 @@ import { ItemCache } from '@vaadin/vaadin-grid/src/vaadin-grid-data-provider-mix
             this.itemkeyCaches = {};
           }
           this.itemCaches[scaledIndex] = subCache;
-          this.itemkeyCaches[this.grid.getItemId(subCache.parentItem)] = subCache;
+          const parentKey = this.grid.getItemId(subCache.parentItem);
+          this.itemkeyCaches[parentKey] = subCache;
+          this.grid.$connector.registerSubCacheLocation(parentKey, this, scaledIndex);
           this.grid._loadPage(0, subCache);
         }
       })
 
       ItemCache.prototype.getCacheAndIndexByKey = tryCatchWrapper(function(key) {
+        // The items with sub-caches are looked up from the registry of the grid
+        const location = this.grid.$connector.getSubCacheLocation(key, this);
+        if (location) {
+          return location;
+        }
         for (let index in this.items) {
           if(grid.getItemId(this.items[index]) === key) {
             return {cache: this, scaledIndex: index};
@@ -71,21 +79,60 @@ import { ItemCache } from '@vaadin/vaadin-grid/src/vaadin-grid-data-provider-mix
       const treePageCallbacks = {};
       const cache = {};
 
+      /* itemCacheLocations - maps the key of each item in the cache to its
+      *  location {parentKey, page, index}, so that updated items can be found
+      *  without scanning all cached pages. Kept in sync with the cache.
+      */
+      const itemCacheLocations = {};
+
       /* ensureSubCacheDelay - true optimizes scrolling performance by adding small
       *  delay between each first page fetch of expanded item.
       *  Disable by setting to false.
+      *  Configured from the server with setParentRequestSettings.
       */
-      const ensureSubCacheDelay = true;
+      let ensureSubCacheDelay = true;
 
       /* parentRequestDelay - optimizes parent requests by batching several requests
       *  into one request. Delay in milliseconds. Disable by setting to 0.
       *  parentRequestBatchMaxSize - maximum size of the batch.
+      *  Configured from the server with setParentRequestSettings.
+      */
+      let parentRequestDelay = 20;
+      let parentRequestBatchMaxSize = 20;
+
+      /* expandedStateDelay - batches expand and collapse toggles into one
+      *  request. Delay in milliseconds. Disable by setting to 0.
       */
-      const parentRequestDelay = 20;
-      const parentRequestBatchMaxSize = 20;
+      const expandedStateDelay = 50;
+
+      /* itemDetailsRequestDelay - batches the requests for the details of
+      *  rendered rows whose details were not built by the server into one
+      *  request. Delay in milliseconds. Disable by setting to 0.
+      */
+      const itemDetailsRequestDelay = 50;
+
+      /* confirmDelay - the acknowledgements of applied data updates are sent
+      *  together with the next range request, or as one request after this
+      *  delay at the latest. Delay in milliseconds. Disable by setting to 0.
+      */
+      const confirmDelay = 100;
 
       let parentRequestQueue = [];
       let parentRequestDebouncer;
+      let pendingExpandedStates = {};
+      let expandedStateDebouncer;
+      let itemDetailsRequested = false;
+      let pendingConfirms = [];
+      let pendingParentConfirms = [];
+      let confirmDebouncer;
+      /* serverPrefetch - true when the server decides how many rows are
+      *  fetched around the viewport. The connector then requests only the
+      *  pages of the viewport and reports the scroll velocity.
+      */
+      let serverPrefetch = false;
+      let lastScrollSample;
+      let scrollVelocity = 0;
+      let itemDetailsDebouncer;
       let ensureSubCacheQueue = [];
       let ensureSubCacheDebouncer;
 
@@ -106,6 +153,89 @@ import { ItemCache } from '@vaadin/vaadin-grid/src/vaadin-grid-data-provider-mix
 
       grid.$connector = {};
 
+      grid.$connector.setParentRequestSettings = tryCatchWrapper(function(delay, batchMaxSize, subCacheDelay) {
+        parentRequestDelay = delay;
+        parentRequestBatchMaxSize = batchMaxSize;
+        ensureSubCacheDelay = subCacheDelay;
+      });
+
+      grid.$connector.isEnsureSubCacheDelayed = tryCatchWrapper(function() {
+        return ensureSubCacheDelay;
+      });
+
+      /* subCacheLocations - maps the key of each item that has a sub-cache to
+      *  the cache containing the item and the index of the item in it, so
+      *  that caches can be found by key without scanning the whole hierarchy.
+      *  Entries of dropped caches are detected and removed on lookup.
+      */
+      let subCacheLocations = {};
+
+      /* pageCacheLimit - the maximum number of cached pages of the children
+      *  of expanded items. When exceeded, the pages of the least recently
+      *  used parents that have no rendered rows are evicted, and requested
+      *  again from the server when they come back into view.
+      *  0 means no limit. Configured from the server with setPageCacheLimit.
+      *  The root level is not counted, the server clears its pages when they
+      *  leave the requested range.
+      */
+      let pageCacheLimit = 0;
+      let cachedParentPageCount = 0;
+      let parentAccessCounter = 0;
+      let parentAccess = {};
+      /* evictedParents - the parents whose cached pages were evicted while
+      *  the server still considers them sent. The next request for such a
+      *  parent asks the server to send the range again.
+      */
+      let evictedParents = {};
+
+      grid.$connector.setPageCacheLimit = tryCatchWrapper(function(limit) {
+        pageCacheLimit = limit;
+        evictParentPages();
+      });
+
+      grid.$connector.registerSubCacheLocation = tryCatchWrapper(function(key, cache, scaledIndex) {
+        subCacheLocations[key] = {cache: cache, scaledIndex: scaledIndex};
+      });
+
+      /**
+       * Gets the location of the item with the given key among the caches under
+       * the given cache, if the item has a sub-cache.
+       *
+       * @param key the key of the item
+       * @param rootCache the cache to search under
+       * @returns the cache and the index of the item, or undefined
+       */
+      grid.$connector.getSubCacheLocation = tryCatchWrapper(function(key, rootCache) {
+        const location = subCacheLocations[key];
+        if (!location) {
+          return undefined;
+        }
+        const item = location.cache.items[location.scaledIndex];
+        if (!item || grid.getItemId(item) !== key || !location.cache.itemkeyCaches
+            || !location.cache.itemkeyCaches[key]) {
+          delete subCacheLocations[key];
+          return undefined;
+        }
+        // Check that the cache is still attached, and under the given cache
+        let cache = location.cache;
+        let underRoot = cache === rootCache;
+        while (cache.parentCache) {
+          const parentCache = cache.parentCache;
+          if (!parentCache.itemkeyCaches
+              || parentCache.itemkeyCaches[grid.getItemId(cache.parentItem)] !== cache) {
+            delete subCacheLocations[key];
+            return undefined;
+          }
+          cache = parentCache;
+          underRoot = underRoot || cache === rootCache;
+        }
+        if (cache !== grid._cache) {
+          delete subCacheLocations[key];
+          return undefined;
+        }
+        return underRoot ? {cache: location.cache, scaledIndex: location.scaledIndex} : undefined;
+      });
+
       grid.$connector.hasEnsureSubCacheQueue = tryCatchWrapper(function() {
         return ensureSubCacheQueue.length > 0;
       })
@@ -146,12 +276,13 @@ import { ItemCache } from '@vaadin/vaadin-grid/src/vaadin-grid-data-provider-mix
         }
 
         grid.selectedItems = grid.selectedItems.concat(items);
+        const selectedFromClient = [];
         items.forEach(item => {
           if (item) {
             selectedKeys[item.key] = item;
             if (userOriginated) {
               item.selected = true;
-              grid.$server.select(item.key);
+              selectedFromClient.push(item.key);
             }
           }
           const isSelectedItemDifferentOrNull = !grid.activeItem || !item || item.key != grid.activeItem.key;
@@ -160,6 +291,20 @@ import { ItemCache } from '@vaadin/vaadin-grid/src/vaadin-grid-data-provider-mix
             grid.$connector.activeItem = item;
           }
         });
+        if (selectedFromClient.length) {
+          // One round-trip and one selection event for the whole batch
+          grid.$server.selectKeys(selectedFromClient);
+        }
+      });
+
+      grid.$connector.selectRange = tryCatchWrapper(function(firstIndex, lastIndex) {
+        if (selectionMode !== 'MULTI' || grid.hasAttribute('disabled')) {
+          return;
+        }
+        const start = Math.min(firstIndex, lastIndex);
+        const end = Math.max(firstIndex, lastIndex);
+        // The server sends the selection state back for the rows loaded by the client
+        grid.$server.selectRange(start, end - start + 1);
       });
 
       grid.$connector.doDeselection = tryCatchWrapper(function(items, userOriginated) {
@@ -168,25 +313,22 @@ import { ItemCache } from '@vaadin/vaadin-grid/src/vaadin-grid-data-provider-mix
           return;
         }
 
-        const updatedSelectedItems = grid.selectedItems.slice();
-        while (items.length) {
-          const itemToDeselect = items.shift();
-          for (let i = 0; i < updatedSelectedItems.length; i++) {
-            const selectedItem = updatedSelectedItems[i];
-            if (itemToDeselect && itemToDeselect.key === selectedItem.key) {
-              updatedSelectedItems.splice(i, 1);
-              break;
-            }
-          }
+        const deselectedKeys = {};
+        const deselectedFromClient = [];
+        items.forEach(itemToDeselect => {
           if (itemToDeselect) {
+            deselectedKeys[itemToDeselect.key] = true;
             delete selectedKeys[itemToDeselect.key];
             if (userOriginated) {
               delete itemToDeselect.selected;
-              grid.$server.deselect(itemToDeselect.key);
+              deselectedFromClient.push(itemToDeselect.key);
             }
           }
+        });
+        grid.selectedItems = grid.selectedItems.filter(selectedItem => !deselectedKeys[selectedItem.key]);
+        if (deselectedFromClient.length) {
+          grid.$server.deselectKeys(deselectedFromClient);
         }
-        grid.selectedItems = updatedSelectedItems;
       });
 
       grid.__activeItemChanged = tryCatchWrapper(function(newVal, oldVal) {
@@ -287,10 +429,90 @@ import { ItemCache } from '@vaadin/vaadin-grid/src/vaadin-grid-data-provider-mix
         return false;
       })
 
+      grid.$connector.flushExpandedStates = tryCatchWrapper(function() {
+        if(expandedStateDebouncer) {
+          expandedStateDebouncer.cancel();
+          expandedStateDebouncer = undefined;
+        }
+        const states = Object.keys(pendingExpandedStates)
+          .map(key => ({key: key, expanded: pendingExpandedStates[key]}));
+        pendingExpandedStates = {};
+        if(states.length) {
+          grid.$server.updateExpandedStates(states);
+        }
+      })
+
+      grid.$connector.beforeExpandedStateChange = tryCatchWrapper(function(key, expanded) {
+        pendingExpandedStates[key] = expanded;
+        if(expandedStateDelay > 0) {
+          expandedStateDebouncer = Debouncer.debounce(expandedStateDebouncer,
+            timeOut.after(expandedStateDelay), () => grid.$connector.flushExpandedStates());
+        } else {
+          grid.$connector.flushExpandedStates();
+        }
+      })
+
+      grid.$connector.flushConfirms = tryCatchWrapper(function() {
+        if(confirmDebouncer) {
+          confirmDebouncer.cancel();
+          confirmDebouncer = undefined;
+        }
+        if(pendingConfirms.length) {
+          grid.$server.confirmUpdates(pendingConfirms);
+          pendingConfirms = [];
+        }
+        if(pendingParentConfirms.length) {
+          grid.$server.confirmParentUpdates(pendingParentConfirms);
+          pendingParentConfirms = [];
+        }
+      })
+
+      const scheduleConfirms = function() {
+        if(confirmDelay <= 0) {
+          grid.$connector.flushConfirms();
+        } else if(!confirmDebouncer) {
+          // Not postponed by further confirmations, to bound the delay
+          confirmDebouncer = Debouncer.debounce(confirmDebouncer,
+            timeOut.after(confirmDelay), () => grid.$connector.flushConfirms());
+        }
+      };
+
+      grid.$connector.flushItemDetailsRequests = tryCatchWrapper(function() {
+        if(itemDetailsDebouncer) {
+          itemDetailsDebouncer.cancel();
+          itemDetailsDebouncer = undefined;
+        }
+        if(!itemDetailsRequested) {
+          return;
+        }
+        itemDetailsRequested = false;
+        // Send the keys of all rendered rows with opened details, so that
+        // the server keeps their details instead of evicting them
+        const keys = grid._physicalItems
+          .filter(row => !row.hidden && row._item && row._item.detailsOpened)
+          .map(row => row._item.key);
+        if(keys.length) {
+          grid.$server.requestItemDetails(keys);
+        }
+      })
+
+      grid.$connector.beforeItemDetailsRequest = tryCatchWrapper(function() {
+        itemDetailsRequested = true;
+        if(itemDetailsRequestDelay > 0) {
+          itemDetailsDebouncer = Debouncer.debounce(itemDetailsDebouncer,
+            timeOut.after(itemDetailsRequestDelay), () => grid.$connector.flushItemDetailsRequests());
+        } else {
+          grid.$connector.flushItemDetailsRequests();
+        }
+      })
+
       grid.$connector.flushParentRequests = tryCatchWrapper(function() {
         let pendingFetches = parentRequestQueue.splice(0, parentRequestBatchMaxSize);
 
         if(pendingFetches.length) {
+          // The server needs the expanded state before resolving the ranges
+          grid.$connector.flushExpandedStates();
+          grid.$connector.flushConfirms();
           grid.$server.setParentRequestedRanges(pendingFetches);
           return true;
         }
@@ -315,10 +537,33 @@ import { ItemCache } from '@vaadin/vaadin-grid/src/vaadin-grid-data-provider-mix
           }
 
         } else {
+          grid.$connector.flushExpandedStates();
+          grid.$connector.flushConfirms();
           grid.$server.setParentRequestedRange(firstIndex, size, parentKey);
         }
       })
 
+      grid.$connector.setServerPrefetch = tryCatchWrapper(function(enabled) {
+        serverPrefetch = enabled;
+        lastScrollSample = undefined;
+        scrollVelocity = 0;
+      });
+
+      /**
+       * Updates the scroll velocity in rows per second from the change of the
+       * first visible row since the previous sample.
+       */
+      const sampleScrollVelocity = function() {
+        const now = Date.now();
+        const index = grid._virtualStart + grid._vidxOffset;
+        if (lastScrollSample) {
+          const elapsed = Math.max(16, now - lastScrollSample.time);
+          const velocity = (index - lastScrollSample.index) * 1000 / elapsed;
+          scrollVelocity = (scrollVelocity + velocity) / 2;
+        }
+        lastScrollSample = {time: now, index: index};
+      };
+
       grid.$connector.fetchPage = tryCatchWrapper(function(fetch, page, parentKey) {
         // Determine what to fetch based on scroll position and not only
         // what grid asked for
@@ -328,7 +573,8 @@ import { ItemCache } from '@vaadin/vaadin-grid/src/vaadin-grid-data-provider-mix
         // or to increase it to make Grid smoother when scrolling
         let start = grid._virtualStart;
         let end = grid._virtualEnd;
-        let buffer = end - start;
+        // With server prefetch, the server adds the buffer to the root level range
+        let buffer = (serverPrefetch && parentKey === root) ? 0 : end - start;
 
         let firstNeededIndex = Math.max(0, start + grid._vidxOffset - buffer);
         let lastNeededIndex = Math.min(end + grid._vidxOffset + buffer, grid._effectiveSize);
@@ -363,6 +609,7 @@ import { ItemCache } from '@vaadin/vaadin-grid/src/vaadin-grid-data-provider-mix
 
         if(params.parentItem) {
           let parentUniqueKey = grid.getItemId(params.parentItem);
+          parentAccess[parentUniqueKey] = ++parentAccessCounter;
           if(!treePageCallbacks[parentUniqueKey]) {
             treePageCallbacks[parentUniqueKey] = {};
           }
@@ -378,7 +625,7 @@ import { ItemCache } from '@vaadin/vaadin-grid/src/vaadin-grid-data-provider-mix
             treePageCallbacks[parentUniqueKey][page] = callback;
           }
           grid.$connector.fetchPage(
-            (firstIndex, size) => grid.$connector.beforeParentRequest(firstIndex, size, params.parentItem.key),
+            (firstIndex, size) => requestParentRange(firstIndex, size, params.parentItem.key, parentUniqueKey),
             page,
             parentUniqueKey
           );
@@ -393,7 +640,18 @@ import { ItemCache } from '@vaadin/vaadin-grid/src/vaadin-grid-data-provider-mix
             rootPageCallbacks[page] = callback;
           }
 
-          grid.$connector.fetchPage((firstIndex, size) => grid.$server.setRequestedRange(firstIndex, size), page, root);
+          grid.$connector.fetchPage((firstIndex, size) => {
+            // Collapsing and expanding changes the indexes of the root level
+            grid.$connector.flushExpandedStates();
+            grid.$connector.flushConfirms();
+            if (serverPrefetch) {
+              sampleScrollVelocity();
+              grid.$server.setViewportRange(firstIndex, size,
+                grid._virtualEnd - grid._virtualStart, scrollVelocity);
+            } else {
+              grid.$server.setRequestedRange(firstIndex, size);
+            }
+          }, page, root);
         }
       })
 
@@ -436,6 +694,10 @@ import { ItemCache } from '@vaadin/vaadin-grid/src/vaadin-grid-data-provider-mix
         // same component instance as one of the renderers on a visible row. Making the
         // inactive/hidden renderer attach the component might steal it from a visible/active one.
         if (!row.hidden) {
+          if (item && item.detailsOpened && item.detailsLazy) {
+            // the server builds the details of rendered rows on request
+            grid.$connector.beforeItemDetailsRequest();
+          }
           // make sure that component renderers are updated
           Array.from(row.children).forEach(cell => {
             if (cell._instance && cell._instance.children) {
@@ -460,15 +722,15 @@ import { ItemCache } from '@vaadin/vaadin-grid/src/vaadin-grid-data-provider-mix
 
       grid._expandedInstanceChangedCallback = tryCatchWrapper(function(inst, value) {
         // method available only for the TreeGrid server-side component
-        if (inst.item == undefined || grid.$server.updateExpandedState == undefined) {
+        if (inst.item == undefined || grid.$server.updateExpandedStates == undefined) {
           return;
         }
         let parentKey = grid.getItemId(inst.item);
-        grid.$server.updateExpandedState(parentKey, value);
+        grid.$connector.beforeExpandedStateChange(parentKey, value);
         if (value) {
           this.expandItem(inst.item);
         } else {
-          delete cache[parentKey];
+          deleteCachedParent(parentKey);
           let parentCache = grid.$connector.getCacheByKey(parentKey);
           if (parentCache && parentCache.itemkeyCaches && parentCache.itemkeyCaches[parentKey]) {
             delete parentCache.itemkeyCaches[parentKey];
@@ -478,6 +740,7 @@ import { ItemCache } from '@vaadin/vaadin-grid/src/vaadin-grid-data-provider-mix
                 .filter(idx => parentCache.items[idx].key === parentKey)
                 .forEach(idx => delete parentCache.itemCaches[idx]);
           }
+          delete subCacheLocations[parentKey];
           delete lastRequestedRanges[parentKey];
           this.collapseItem(inst.item);
         }
@@ -487,19 +750,20 @@ import { ItemCache } from '@vaadin/vaadin-grid/src/vaadin-grid-data-provider-mix
         if (!items || !Array.isArray(items)) {
           throw 'Attempted to call itemsUpdated with an invalid value: ' + JSON.stringify(items);
         }
-        let detailsOpenedItems = Array.from(grid.detailsOpenedItems);
+        // Items with details opened by key, to avoid linear searches per item
+        const detailsOpenedKeys = {};
+        grid.detailsOpenedItems.forEach(item => detailsOpenedKeys[grid.getItemId(item)] = item);
         let updatedSelectedItem = false;
         for (let i = 0; i < items.length; ++i) {
           const item = items[i];
           if(!item) {
             continue;
           }
+          const itemKey = grid.getItemId(item);
           if (item.detailsOpened) {
-            if(grid._getItemIndexInArray(item, detailsOpenedItems) < 0) {
-              detailsOpenedItems.push(item);
-            }
-          } else if(grid._getItemIndexInArray(item, detailsOpenedItems) >= 0) {
-            detailsOpenedItems.splice(grid._getItemIndexInArray(item, detailsOpenedItems), 1)
+            detailsOpenedKeys[itemKey] = item;
+          } else {
+            delete detailsOpenedKeys[itemKey];
           }
           if (selectedKeys[item.key]) {
             selectedKeys[item.key] = item;
@@ -507,7 +771,10 @@ import { ItemCache } from '@vaadin/vaadin-grid/src/vaadin-grid-data-provider-mix
             updatedSelectedItem = true;
           }
         }
-        grid.detailsOpenedItems = detailsOpenedItems;
+        // IE 11 Object doesn't support method values
+        grid.detailsOpenedItems = Object.keys(detailsOpenedKeys).map(function(e) {
+          return detailsOpenedKeys[e]
+        });
         if (updatedSelectedItem) {
           // IE 11 Object doesn't support method values
           grid.selectedItems = Object.keys(selectedKeys).map(function(e) {
@@ -530,8 +797,10 @@ import { ItemCache } from '@vaadin/vaadin-grid/src/vaadin-grid-data-provider-mix
           let parentCache = grid.$connector.getCacheByKey(parentKey);
           if(parentCache && parentCache.itemkeyCaches) {
             let _cache = parentCache.itemkeyCaches[parentKey];
+            // The callbacks are removed when the parent is collapsed
+            const callbacks = treePageCallbacks[parentKey];
             _updateGridCache(page, items,
-              treePageCallbacks[parentKey][page],
+              callbacks && callbacks[page],
               _cache);
           }
 
@@ -589,16 +858,56 @@ import { ItemCache } from '@vaadin/vaadin-grid/src/vaadin-grid-data-provider-mix
          * First mapping the item to physical (iron list) indexes, so that we update
          * only items in with the correct index that are cached in the iron list.
          */
-        const itemKeys = items.map(item => item.key);
+        const itemKeys = {};
+        items.forEach(item => {
+          if (item) {
+            itemKeys[item.key] = true;
+          }
+        });
         const indexes = grid._physicalItems
-            .map((tr, index) => tr._item && tr._item.key && itemKeys.indexOf(tr._item.key) > -1 ? index : null)
+            .map((tr, index) => tr._item && tr._item.key && itemKeys[tr._item.key] ? index : null)
             .filter(idx => idx !== null);
         if (indexes.length > 0) {
           grid._assignModels(indexes);
         }
       };
 
+      /* Decodes the compact item encoding of the server: the property names
+      *  of each distinct set of properties are sent once in 'shapes', and each
+      *  row is an array with the index of its shape followed by the values.
+      */
+      const decodeItems = function(items) {
+        if (Array.isArray(items)) {
+          return items;
+        }
+        const shapes = items.shapes;
+        return items.rows.map(row => {
+          if (!Array.isArray(row)) {
+            return row;
+          }
+          const names = shapes[row[0]];
+          const item = {};
+          for (let i = 0; i < names.length; i++) {
+            item[names[i]] = row[i + 1];
+          }
+          return item;
+        });
+      };
+
+      const requestParentRange = function(firstIndex, size, parentKey, parentUniqueKey) {
+        if (!evictedParents[parentUniqueKey]) {
+          grid.$connector.beforeParentRequest(firstIndex, size, parentKey);
+          return;
+        }
+        // The server does not send a range it considers sent unless asked
+        delete evictedParents[parentUniqueKey];
+        grid.$connector.flushExpandedStates();
+        grid.$connector.flushConfirms();
+        grid.$server.resendParentRequestedRange(firstIndex, size, parentKey);
+      };
+
       grid.$connector.set = tryCatchWrapper(function(index, items, parentKey) {
+        items = decodeItems(items);
         if (index % grid.pageSize != 0) {
           throw 'Got new data to index ' + index + ' which is not aligned with the page size of ' + grid.pageSize;
         }
@@ -613,12 +922,30 @@ import { ItemCache } from '@vaadin/vaadin-grid/src/vaadin-grid-data-provider-mix
           if(!cache[pkey]) {
             cache[pkey] = {};
           }
+          if (pkey !== root && !Array.isArray(cache[pkey][page])) {
+            cachedParentPageCount++;
+          }
+          unindexCachedPage(pkey, page);
           cache[pkey][page] = slice;
-
-          grid.$connector.doSelection(slice.filter(
-            item => item.selected && !isSelectedOnGrid(item)));
-          grid.$connector.doDeselection(slice.filter(
-            item => !item.selected  && (selectedKeys[item.key] || isSelectedOnGrid(item))));
+          indexCachedPage(pkey, page);
+
+          // selectedKeys mirrors grid.selectedItems, so one pass over the
+          // page finds the changes in the selection
+          const selected = [];
+          const deselected = [];
+          for (let j = 0; j < slice.length; j++) {
+            const item = slice[j];
+            if (!item) {
+              continue;
+            }
+            if (item.selected && !selectedKeys[item.key]) {
+              selected.push(item);
+            } else if (!item.selected && selectedKeys[item.key]) {
+              deselected.push(item);
+            }
+          }
+          grid.$connector.doSelection(selected);
+          grid.$connector.doDeselection(deselected);
 
           const updatedItems = updateGridCache(page, pkey);
           if (updatedItems) {
@@ -626,17 +953,104 @@ import { ItemCache } from '@vaadin/vaadin-grid/src/vaadin-grid-data-provider-mix
             updateGridItemsInDomBasedOnCache(updatedItems);
           }
         }
+        if (pkey !== root) {
+          parentAccess[pkey] = ++parentAccessCounter;
+          evictParentPages(pkey);
+        }
       });
 
+      const evictParentPages = function(keptParentKey) {
+        if (pageCacheLimit <= 0 || cachedParentPageCount <= pageCacheLimit) {
+          return;
+        }
+        // The parents of the rendered rows and the parents with outstanding
+        // requests are in use
+        const inUse = {};
+        if (keptParentKey) {
+          inUse[keptParentKey] = true;
+        }
+        (grid._physicalItems || []).forEach(row => {
+          if (row._item && row._item.parentUniqueKey) {
+            inUse[row._item.parentUniqueKey] = true;
+          }
+        });
+        const candidates = Object.keys(cache)
+          .filter(key => key !== root && !inUse[key] && hasCachedPages(key)
+            && !(treePageCallbacks[key] && Object.keys(treePageCallbacks[key]).length))
+          .sort((a, b) => (parentAccess[a] || 0) - (parentAccess[b] || 0));
+        for (let i = 0; i < candidates.length && cachedParentPageCount > pageCacheLimit; i++) {
+          evictParent(candidates[i]);
+        }
+      };
+
+      const hasCachedPages = function(parentKey) {
+        return Object.keys(cache[parentKey]).some(page => Array.isArray(cache[parentKey][page]));
+      };
+
+      const evictParent = function(parentKey) {
+        deleteCachedParent(parentKey);
+        // Keep the sub-cache so that its size and the scroll position are
+        // retained, the grid requests the missing items when rendered
+        const parentCache = grid.$connector.getCacheByKey(parentKey);
+        const subCache = parentCache && parentCache.itemkeyCaches && parentCache.itemkeyCaches[parentKey];
+        if (subCache) {
+          deleteObjectContents(subCache.items);
+        }
+        delete lastRequestedRanges[parentKey];
+        delete parentAccess[parentKey];
+        // The page callbacks are kept, only parents without any are evicted
+        evictedParents[parentKey] = true;
+      };
+
+      const indexCachedPage = function(parentKey, page) {
+        const items = cache[parentKey][page];
+        for (let i = 0; i < items.length; i++) {
+          if (items[i]) {
+            itemCacheLocations[grid.getItemId(items[i])] = {page: page, index: i, parentKey: parentKey};
+          }
+        }
+      };
+
+      const unindexCachedPage = function(parentKey, page) {
+        const items = cache[parentKey] && cache[parentKey][page];
+        if (!Array.isArray(items)) {
+          return;
+        }
+        for (let i = 0; i < items.length; i++) {
+          if (!items[i]) {
+            continue;
+          }
+          const key = grid.getItemId(items[i]);
+          const location = itemCacheLocations[key];
+          // The item may have been cached again on another page meanwhile
+          if (location && location.parentKey === parentKey && location.page == page) {
+            delete itemCacheLocations[key];
+          }
+        }
+      };
+
+      const deleteCachedParent = function(parentKey) {
+        if (!cache[parentKey]) {
+          return;
+        }
+        const pages = Object.keys(cache[parentKey]);
+        for (let i = 0; i < pages.length; i++) {
+          if (parentKey !== root && Array.isArray(cache[parentKey][pages[i]])) {
+            cachedParentPageCount--;
+          }
+          unindexCachedPage(parentKey, pages[i]);
+        }
+        delete cache[parentKey];
+      };
+
       const itemToCacheLocation = function(item) {
-        let parent = item.parentUniqueKey || root;
-        if(cache[parent]) {
-          for (let page in cache[parent]) {
-            for (let index in cache[parent][page]) {
-              if (grid.getItemId(cache[parent][page][index]) === grid.getItemId(item)) {
-                return {page: page, index: index, parentKey: parent};
-              }
-            }
+        const parent = item.parentUniqueKey || root;
+        const key = grid.getItemId(item);
+        const location = itemCacheLocations[key];
+        if (location && location.parentKey === parent) {
+          const items = cache[parent] && cache[parent][location.page];
+          if (items && items[location.index] && grid.getItemId(items[location.index]) === key) {
+            return location;
           }
         }
         return null;
@@ -673,12 +1087,42 @@ import { ItemCache } from '@vaadin/vaadin-grid/src/vaadin-grid-data-provider-mix
         }
       });
 
+      /**
+       * Merges the given partial items into copies of the cached items with
+       * the same keys. Partial items of items that are not cached are dropped.
+       *
+       * @param patches the partial items array
+       * @return the merged items array
+       */
+      const mergeWithCachedItems = function(patches) {
+        const mergedItems = [];
+        for (let i = 0; i < patches.length; i++) {
+          const location = itemCacheLocations[grid.getItemId(patches[i])];
+          const items = location && cache[location.parentKey] && cache[location.parentKey][location.page];
+          const cachedItem = items && items[location.index];
+          if (cachedItem && grid.getItemId(cachedItem) === grid.getItemId(patches[i])) {
+            mergedItems.push(Object.assign({}, cachedItem, patches[i]));
+          }
+        }
+        return mergedItems;
+      };
+
       /**
        * Updates the given items for a non-hierarchical grid.
        *
        * @param updatedItems the updated items array
+       * @param patch true if the items only contain the changed properties,
+       *  which are merged into the cached items
        */
-      grid.$connector.updateFlatData = tryCatchWrapper(function(updatedItems) {
+      grid.$connector.updateFlatData = tryCatchWrapper(function(updatedItems, patch) {
+        if (patch) {
+          updatedItems = mergeWithCachedItems(updatedItems);
+          if (grid.$server.updateExpandedStates != undefined) {
+            // TreeGrid items are located by their parent
+            grid.$connector.updateHierarchicalData(updatedItems);
+            return;
+          }
+        }
         // update (flat) caches
         for (let i = 0; i < updatedItems.length; i++) {
           let cacheLocation = itemToCacheLocation(updatedItems[i]);
@@ -719,7 +1163,14 @@ import { ItemCache } from '@vaadin/vaadin-grid/src/vaadin-grid-data-provider-mix
         for (let i = 0; i < updatedPageCount; i++) {
           let page = firstPage + i;
           let items = cache[pkey][page];
+          if (!items) {
+            continue;
+          }
           grid.$connector.doDeselection(items.filter(item => selectedKeys[item.key]));
+          if (pkey !== root) {
+            cachedParentPageCount--;
+          }
+          unindexCachedPage(pkey, page);
           delete cache[pkey][page];
           const updatedItems = updateGridCache(page, parentKey);
           if (updatedItems) {
@@ -729,30 +1180,29 @@ import { ItemCache } from '@vaadin/vaadin-grid/src/vaadin-grid-data-provider-mix
         }
       });
 
-      const isSelectedOnGrid = function(item) {
-        const selectedItems = grid.selectedItems;
-        for(let i = 0; i < selectedItems; i++) {
-          let selectedItem = selectedItems[i];
-          if (selectedItem.key === item.key) {
-            return true;
-          }
-        }
-        return false;
-      };
-
       grid.$connector.reset = tryCatchWrapper(function() {
         grid.size = 0;
         deleteObjectContents(cache);
+        deleteObjectContents(itemCacheLocations);
+        cachedParentPageCount = 0;
+        parentAccess = {};
+        evictedParents = {};
         deleteObjectContents(grid._cache.items);
         deleteObjectContents(lastRequestedRanges);
+        subCacheLocations = {};
         if(ensureSubCacheDebouncer) {
           ensureSubCacheDebouncer.cancel();
         }
         if(parentRequestDebouncer) {
           parentRequestDebouncer.cancel();
         }
+        if(itemDetailsDebouncer) {
+          itemDetailsDebouncer.cancel();
+        }
         ensureSubCacheDebouncer = undefined;
         parentRequestDebouncer = undefined;
+        itemDetailsDebouncer = undefined;
+        itemDetailsRequested = false;
         ensureSubCacheQueue = [];
         parentRequestQueue = [];
         updateAllGridRowsInDomBasedOnCache();
@@ -796,6 +1246,7 @@ import { ItemCache } from '@vaadin/vaadin-grid/src/vaadin-grid-data-provider-mix
       grid.$connector.removeFromQueue = tryCatchWrapper(function(item) {
         let itemId = grid.getItemId(item);
         delete treePageCallbacks[itemId];
+        delete evictedParents[itemId];
         grid.$connector.removeFromArray(ensureSubCacheQueue, item => item.itemkey === itemId);
         grid.$connector.removeFromArray(parentRequestQueue, item => item.parentKey === itemId);
       })
@@ -830,7 +1281,8 @@ import { ItemCache } from '@vaadin/vaadin-grid/src/vaadin-grid-data-provider-mix
           }
         }
         // Let server know we're done
-        grid.$server.confirmParentUpdate(id, parentKey);
+        pendingParentConfirms.push({id: id, parentKey: parentKey});
+        scheduleConfirms();
       });
 
       grid.$connector.confirm = tryCatchWrapper(function(id) {
@@ -855,19 +1307,22 @@ import { ItemCache } from '@vaadin/vaadin-grid/src/vaadin-grid-data-provider-mix
         }
 
         // Let server know we're done
-        grid.$server.confirmUpdate(id);
+        pendingConfirms.push(id);
+        scheduleConfirms();
       })
 
       grid.$connector.ensureHierarchy = tryCatchWrapper(function() {
         for (let parentKey in cache) {
           if(parentKey !== root) {
-            delete cache[parentKey];
+            deleteCachedParent(parentKey);
           }
         }
         deleteObjectContents(lastRequestedRanges);
+        evictedParents = {};
 
         grid._cache.itemCaches = {};
         grid._cache.itemkeyCaches = {};
+        subCacheLocations = {};
 
         updateAllGridRowsInDomBasedOnCache();
       })
@@ -877,6 +1332,7 @@ import { ItemCache } from '@vaadin/vaadin-grid/src/vaadin-grid-data-provider-mix
             && validSelectionModes.indexOf(mode) >= 0) {
           selectionMode = mode;
           selectedKeys = {};
+          grid.selectedItems = [];
         } else {
           throw 'Attempted to set an invalid selection mode';
         }
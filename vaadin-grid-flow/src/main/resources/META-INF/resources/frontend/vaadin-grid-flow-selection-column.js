@@ -107,8 +107,16 @@ import { GridColumnElement } from '@vaadin/vaadin-grid/src/vaadin-grid-column.js
     }
 
     _onSelectClick(e) {
-      e.target.checked ? this._grid.$connector.doDeselection([e.model.item], true) : this._grid.$connector.doSelection([e.model.item], true);
+      const index = e.model.index;
+      const isTreeGrid = this._grid.$server.updateExpandedStates !== undefined;
+      if (e.shiftKey && !e.target.checked && this._lastClickedIndex !== undefined && !isTreeGrid) {
+        // Shift-click selects the whole range on the server in one request
+        this._grid.$connector.selectRange(this._lastClickedIndex, index);
+      } else {
+        e.target.checked ? this._grid.$connector.doDeselection([e.model.item], true) : this._grid.$connector.doSelection([e.model.item], true);
+      }
       e.target.checked = !e.target.checked;
+      this._lastClickedIndex = index;
     }
 
     _onSelectAllClick(e) {
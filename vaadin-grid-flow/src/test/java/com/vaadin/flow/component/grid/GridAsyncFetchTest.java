@@ -0,0 +1,243 @@
+/*
+ * Copyright 2000-2017 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.grid;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.flow.component.grid.editor.EditorImplTest.MockUI;
+import com.vaadin.flow.component.treegrid.TreeGrid;
+import com.vaadin.flow.server.Command;
+
+import static com.vaadin.flow.component.grid.GridTestHelper.attach;
+import static com.vaadin.flow.component.grid.GridTestHelper.dumpSentRows;
+import static com.vaadin.flow.component.grid.GridTestHelper.fakeClientResponse;
+
+public class GridAsyncFetchTest {
+
+    private Grid<String> grid;
+    private MockUI ui;
+    private List<Runnable> fetches = new ArrayList<>();
+    private List<String> generatedItems = new ArrayList<>();
+
+    private static class AccessUI extends MockUI {
+        @Override
+        public Future<Void> access(Command command) {
+            command.execute();
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    @Before
+    public void setup() {
+        grid = new Grid<>();
+        grid.setItems("a", "b", "c");
+        grid.addColumn(item -> {
+            generatedItems.add(item);
+            return item;
+        });
+        grid.setDataFetchExecutor(fetches::add);
+        ui = attach(new AccessUI(), grid);
+        fakeClientResponse(ui);
+    }
+
+    @Test
+    public void requestedRange_fetchedOnExecutor_deliveredWhenReady() {
+        Assert.assertTrue(generatedItems.isEmpty());
+        Assert.assertEquals(1, fetches.size());
+
+        fetches.remove(0).run();
+        fakeClientResponse(ui);
+
+        Assert.assertEquals(Arrays.asList("a", "b", "c"), generatedItems);
+        Assert.assertTrue(fetches.isEmpty());
+    }
+
+    @Test
+    public void dataReset_staleFetchDiscarded() {
+        grid.setItems("d", "e");
+        fakeClientResponse(ui);
+        Assert.assertEquals(2, fetches.size());
+
+        fetches.remove(0).run();
+        fakeClientResponse(ui);
+        Assert.assertTrue(generatedItems.isEmpty());
+
+        fetches.remove(0).run();
+        fakeClientResponse(ui);
+        Assert.assertEquals(Arrays.asList("d", "e"), generatedItems);
+    }
+
+    @Test
+    public void noExecutor_fetchedSynchronously() {
+        grid.setDataFetchExecutor(null);
+        fakeClientResponse(ui);
+
+        Assert.assertNull(grid.getDataFetchExecutor());
+        Assert.assertEquals(Arrays.asList("a", "b", "c"), generatedItems);
+    }
+
+    @Test
+    public void noExecutor_fetchTimeNotMeasured() {
+        grid.setDataFetchExecutor(null);
+        fakeClientResponse(ui);
+
+        Assert.assertEquals(0,
+                ((AsyncDataCommunicator<String>) grid.getDataCommunicator())
+                        .getFetchMillisPerItem(),
+                0);
+    }
+
+    @Test
+    public void rejectingExecutor_fetchedSynchronously() {
+        fetches.clear();
+        Grid<Integer> numbers = new Grid<>();
+        numbers.setItems(IntStream.range(0, 200).boxed()
+                .collect(Collectors.toList()));
+        numbers.addColumn(item -> item);
+        numbers.setDataFetchExecutor(command -> {
+            throw new RejectedExecutionException();
+        });
+        attach(ui, numbers);
+        fakeClientResponse(ui);
+        assertRows(getSentRows(numbers), 0, 50);
+
+        numbers.getDataCommunicator().setRequestedRange(50, 50);
+        fakeClientResponse(ui);
+        assertRows(getSentRows(numbers), 50, 50);
+
+        numbers.setDataFetchExecutor(fetches::add);
+        numbers.getDataCommunicator().setRequestedRange(100, 50);
+        fakeClientResponse(ui);
+        Assert.assertTrue(getSentRows(numbers).isEmpty());
+        Assert.assertEquals(1, fetches.size());
+    }
+
+    @Test
+    public void scrollDown_rangeSentWhenFetched() {
+        Grid<Integer> numbers = attachNumbers();
+
+        numbers.getDataCommunicator().setRequestedRange(50, 50);
+        fakeClientResponse(ui);
+        Assert.assertTrue(getSentRows(numbers).isEmpty());
+        Assert.assertEquals(1, fetches.size());
+
+        fetches.remove(0).run();
+        fakeClientResponse(ui);
+
+        assertRows(getSentRows(numbers), 50, 50);
+        fakeClientResponse(ui);
+        Assert.assertTrue(fetches.isEmpty());
+    }
+
+    @Test
+    public void scrollUp_overlappingRange_rowsAtTheirIndexes() {
+        Grid<Integer> numbers = attachNumbers();
+        requestAndDeliver(numbers, 100, 50);
+
+        numbers.getDataCommunicator().setRequestedRange(50, 100);
+        fakeClientResponse(ui);
+        Assert.assertTrue(getSentRows(numbers).isEmpty());
+
+        fetches.remove(0).run();
+        fakeClientResponse(ui);
+
+        assertRows(getSentRows(numbers), 50, 50);
+        fakeClientResponse(ui);
+        Assert.assertTrue(fetches.isEmpty());
+    }
+
+    @Test
+    public void rangeSpanningTwoPartitions_fetchedOnce() {
+        Grid<Integer> numbers = attachNumbers();
+        requestAndDeliver(numbers, 50, 50);
+
+        numbers.getDataCommunicator().setRequestedRange(0, 150);
+        fakeClientResponse(ui);
+        Assert.assertEquals(1, fetches.size());
+
+        fetches.remove(0).run();
+        fakeClientResponse(ui);
+
+        Map<Integer, Integer> rows = getSentRows(numbers);
+        rows.forEach((index, item) -> Assert.assertEquals(index, item));
+        Assert.assertTrue(rows.keySet().containsAll(IntStream.range(0, 50)
+                .boxed().collect(Collectors.toList())));
+        Assert.assertTrue(rows.keySet().containsAll(IntStream
+                .range(100, 150).boxed().collect(Collectors.toList())));
+        fakeClientResponse(ui);
+        Assert.assertTrue(fetches.isEmpty());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void treeGrid_setDataFetchExecutor_throws() {
+        new TreeGrid<String>().setDataFetchExecutor(fetches::add);
+    }
+
+    private Grid<Integer> attachNumbers() {
+        fetches.clear();
+        Grid<Integer> numbers = new Grid<>();
+        numbers.setItems(IntStream.range(0, 200).boxed()
+                .collect(Collectors.toList()));
+        numbers.addColumn(item -> item);
+        numbers.setDataFetchExecutor(fetches::add);
+        attach(ui, numbers);
+        fakeClientResponse(ui);
+        fetches.remove(0).run();
+        fakeClientResponse(ui);
+        assertRows(getSentRows(numbers), 0, 50);
+        return numbers;
+    }
+
+    private void requestAndDeliver(Grid<Integer> numbers, int start,
+            int length) {
+        numbers.getDataCommunicator().setRequestedRange(start, length);
+        fakeClientResponse(ui);
+        fetches.remove(0).run();
+        fakeClientResponse(ui);
+        assertRows(getSentRows(numbers), start, length);
+    }
+
+    private void assertRows(Map<Integer, Integer> rows, int start,
+            int length) {
+        Assert.assertEquals(IntStream.range(start, start + length).boxed()
+                .collect(Collectors.toList()), new ArrayList<>(rows.keySet()));
+        rows.forEach((index, item) -> Assert.assertEquals(index, item));
+    }
+
+    /*
+     * Maps the indexes of the rows sent to the client to their items.
+     */
+    private Map<Integer, Integer> getSentRows(Grid<Integer> numbers) {
+        Map<Integer, Integer> rows = new TreeMap<>();
+        dumpSentRows(ui, numbers).forEach((index, row) -> rows.put(index,
+                numbers.getDataCommunicator().getKeyMapper()
+                        .get(row.getString("key"))));
+        return rows;
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2000-2017 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.grid;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.flow.component.grid.Grid.Column;
+import com.vaadin.flow.component.grid.editor.EditorImplTest.MockUI;
+
+import elemental.json.JsonObject;
+
+import static com.vaadin.flow.component.grid.GridTestHelper.attach;
+import static com.vaadin.flow.component.grid.GridTestHelper.dumpSentRows;
+import static com.vaadin.flow.component.grid.GridTestHelper.fakeClientResponse;
+
+public class GridClassNameGeneratorTest {
+
+    private Grid<String> grid;
+    private Column<String> firstColumn;
+    private Column<String> secondColumn;
+    private MockUI ui;
+
+    @Before
+    public void setup() {
+        grid = new Grid<>();
+        grid.setItems("a", "b", "c");
+        firstColumn = grid.addColumn(item -> item);
+        secondColumn = grid.addColumn(item -> item);
+        ui = attach(grid);
+        fakeClientResponse(ui);
+        ui.getInternals().dumpPendingJavaScriptInvocations();
+    }
+
+    @Test
+    public void noClassNameGenerator_noStyleSent() {
+        grid.getDataCommunicator().reset();
+
+        List<JsonObject> rows = getSentRows();
+
+        Assert.assertEquals(3, rows.size());
+        rows.forEach(row -> Assert.assertFalse(row.hasKey("style")));
+    }
+
+    @Test
+    public void columnClassNameGenerator_styleSentOnlyForThatColumn() {
+        List<String> generatedItems = new ArrayList<>();
+        firstColumn.setClassNameGenerator(item -> {
+            generatedItems.add(item);
+            return "first-" + item;
+        });
+
+        List<JsonObject> rows = getSentRows();
+
+        Assert.assertEquals(Arrays.asList("a", "b", "c"), generatedItems);
+        Assert.assertEquals(3, rows.size());
+        for (JsonObject row : rows) {
+            JsonObject style = row.getObject("style");
+            Assert.assertArrayEquals(
+                    new String[] { firstColumn.getInternalId() },
+                    style.keys());
+            Assert.assertFalse(style.hasKey(secondColumn.getInternalId()));
+            Assert.assertTrue(style.getString(firstColumn.getInternalId())
+                    .startsWith("first-"));
+        }
+    }
+
+    @Test
+    public void classNameGeneratorsReturnNull_noStyleSent() {
+        grid.setClassNameGenerator(item -> null);
+        secondColumn.setClassNameGenerator(item -> null);
+
+        List<JsonObject> rows = getSentRows();
+
+        Assert.assertEquals(3, rows.size());
+        rows.forEach(row -> Assert.assertFalse(row.hasKey("style")));
+    }
+
+    @Test
+    public void rowClassNameGenerator_onlyRowStyleSent() {
+        grid.setClassNameGenerator(item -> "b".equals(item) ? "row-b" : null);
+
+        List<JsonObject> rows = getSentRows();
+
+        Assert.assertEquals(3, rows.size());
+        for (JsonObject row : rows) {
+            if ("b".equals(grid.getDataCommunicator().getKeyMapper()
+                    .get(row.getString("key")))) {
+                Assert.assertArrayEquals(new String[] { "row" },
+                        row.getObject("style").keys());
+                Assert.assertEquals("row-b",
+                        row.getObject("style").getString("row"));
+            } else {
+                Assert.assertFalse(row.hasKey("style"));
+            }
+        }
+    }
+
+    private List<JsonObject> getSentRows() {
+        fakeClientResponse(ui);
+        return new ArrayList<>(dumpSentRows(ui, grid).values());
+    }
+}
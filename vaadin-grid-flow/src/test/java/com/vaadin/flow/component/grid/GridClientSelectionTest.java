@@ -0,0 +1,159 @@
+/*
+ * Copyright 2000-2017 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.grid;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.flow.component.grid.Grid.SelectionMode;
+import com.vaadin.flow.component.grid.editor.EditorImplTest.MockUI;
+import com.vaadin.flow.data.provider.ListDataProvider;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+
+import static com.vaadin.flow.component.grid.GridTestHelper.attach;
+import static com.vaadin.flow.component.grid.GridTestHelper.fakeClientResponse;
+
+public class GridClientSelectionTest {
+
+    private Grid<Integer> grid;
+    private ListDataProvider<Integer> dataProvider;
+    private MockUI ui;
+
+    @Before
+    public void setup() {
+        grid = new Grid<>();
+        dataProvider = new ListDataProvider<>(IntStream.range(0, 100)
+                .boxed().collect(Collectors.toList()));
+        grid.setDataProvider(dataProvider);
+        grid.addColumn(item -> item);
+        grid.setSelectionMode(SelectionMode.MULTI);
+        ui = attach(grid);
+        fakeClientResponse(ui);
+    }
+
+    @Test
+    public void selectKeys_deselectKeys_selectionUpdated() {
+        invoke("selectKeys", new Class<?>[] { JsonArray.class },
+                keys(1, 2, 3));
+        Assert.assertEquals(Arrays.asList(1, 2, 3), getSelectedItems());
+
+        invoke("deselectKeys", new Class<?>[] { JsonArray.class }, keys(2));
+        Assert.assertEquals(Arrays.asList(1, 3), getSelectedItems());
+    }
+
+    @Test(expected = NoSuchMethodException.class)
+    public void selectSingleKey_notCallable() throws NoSuchMethodException {
+        Grid.class.getDeclaredMethod("select", String.class);
+    }
+
+    @Test
+    public void selectRange_loadedRowsRefreshed() {
+        List<Integer> generatedItems = new ArrayList<>();
+        grid.addColumn(item -> {
+            generatedItems.add(item);
+            return item;
+        });
+        grid.getDataCommunicator().reset();
+        fakeClientResponse(ui);
+        generatedItems.clear();
+
+        selectRange(2, 3);
+        fakeClientResponse(ui);
+
+        Assert.assertEquals(Arrays.asList(2, 3, 4), getSelectedItems());
+        Assert.assertEquals(Arrays.asList(2, 3, 4), generatedItems);
+    }
+
+    @Test
+    public void selectRange_filtered_filterApplied() {
+        dataProvider.setFilter(item -> item % 2 == 0);
+        fakeClientResponse(ui);
+
+        selectRange(0, 5);
+
+        Assert.assertEquals(Arrays.asList(0, 2, 4, 6, 8), getSelectedItems());
+    }
+
+    @Test
+    public void selectRange_lengthBeyondSize_clamped() {
+        selectRange(95, Integer.MAX_VALUE);
+
+        Assert.assertEquals(Arrays.asList(95, 96, 97, 98, 99),
+                getSelectedItems());
+    }
+
+    @Test
+    public void selectRange_startBeyondSize_nothingSelected() {
+        selectRange(100, 10);
+
+        Assert.assertTrue(getSelectedItems().isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void selectRange_negativeLength_throws() throws Throwable {
+        try {
+            Method method = Grid.class.getDeclaredMethod("selectRange",
+                    int.class, int.class);
+            method.setAccessible(true);
+            method.invoke(grid, 0, -1);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private List<Integer> getSelectedItems() {
+        return new ArrayList<>(grid.getSelectedItems());
+    }
+
+    private JsonArray keys(Integer... items) {
+        JsonArray keys = Json.createArray();
+        for (Integer item : items) {
+            keys.set(keys.length(),
+                    grid.getDataCommunicator().getKeyMapper().key(item));
+        }
+        return keys;
+    }
+
+    private void selectRange(int start, int length) {
+        invoke("selectRange", new Class<?>[] { int.class, int.class }, start,
+                length);
+    }
+
+    private void invoke(String methodName, Class<?>[] parameterTypes,
+            Object... arguments) {
+        try {
+            Method method = Grid.class.getDeclaredMethod(methodName,
+                    parameterTypes);
+            method.setAccessible(true);
+            method.invoke(grid, arguments);
+        } catch (NoSuchMethodException | SecurityException
+                | IllegalAccessException | IllegalArgumentException
+                | InvocationTargetException e) {
+            Assert.fail("Could not call Grid." + methodName);
+        }
+    }
+}
@@ -24,6 +24,7 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
 import com.vaadin.flow.component.grid.Grid.Column;
+import com.vaadin.flow.component.grid.editor.EditorImplTest.MockUI;
 import com.vaadin.flow.component.html.Label;
 import com.vaadin.flow.data.provider.SortDirection;
 import com.vaadin.flow.data.renderer.IconRenderer;
@@ -33,6 +34,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.function.BiFunction;
 
+import static com.vaadin.flow.component.grid.GridTestHelper.attach;
+import static com.vaadin.flow.component.grid.GridTestHelper.fakeClientResponse;
 import static org.junit.Assert.assertNotNull;
 
 public class GridColumnTest {
@@ -98,6 +101,25 @@ public class GridColumnTest {
         Assert.assertNull(grid.getColumnByKey("first"));
     }
 
+    @Test
+    public void removeColumn_classNameGeneratorNotCalled() {
+        List<String> generated = new ArrayList<>();
+        firstColumn.setClassNameGenerator(item -> {
+            generated.add(item);
+            return "first";
+        });
+        grid.setItems("a", "b");
+        MockUI ui = attach(grid);
+        fakeClientResponse(ui);
+        Assert.assertEquals(2, generated.size());
+
+        generated.clear();
+        grid.removeColumn(firstColumn);
+        grid.getDataCommunicator().reset();
+        fakeClientResponse(ui);
+        Assert.assertEquals(0, generated.size());
+    }
+
     @Test
     public void removeNullColumn_throws() {
         expectNullPointerException("column should not be null");
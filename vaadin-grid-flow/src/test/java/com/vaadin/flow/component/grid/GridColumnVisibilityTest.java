@@ -0,0 +1,129 @@
+/*
+ * Copyright 2000-2017 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.grid;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.flow.component.grid.Grid.Column;
+import com.vaadin.flow.component.grid.editor.EditorImplTest.MockUI;
+import com.vaadin.flow.component.html.Span;
+import com.vaadin.flow.component.internal.PendingJavaScriptInvocation;
+import com.vaadin.flow.data.renderer.ComponentRenderer;
+
+import static com.vaadin.flow.component.grid.GridTestHelper.attach;
+import static com.vaadin.flow.component.grid.GridTestHelper.fakeClientResponse;
+
+public class GridColumnVisibilityTest {
+
+    private Grid<String> grid;
+    private Column<String> column;
+    private MockUI ui;
+    private List<String> generatedItems = new ArrayList<>();
+
+    @Before
+    public void setup() {
+        grid = new Grid<>();
+        grid.setItems("a", "b", "c");
+        grid.addColumn(item -> item);
+        column = grid.addColumn(item -> {
+            generatedItems.add(item);
+            return item;
+        });
+        ui = attach(grid);
+        fakeClientResponse(ui);
+    }
+
+    @Test
+    public void hiddenColumn_noDataGenerated() {
+        Assert.assertEquals(Arrays.asList("a", "b", "c"), generatedItems);
+        generatedItems.clear();
+
+        column.setVisible(false);
+        grid.getDataCommunicator().reset();
+        fakeClientResponse(ui);
+
+        Assert.assertTrue(generatedItems.isEmpty());
+    }
+
+    @Test
+    public void shownColumn_dataSentForRowsOnClient() {
+        column.setVisible(false);
+        grid.getDataCommunicator().refresh("b");
+        fakeClientResponse(ui);
+        ui.getInternals().dumpPendingJavaScriptInvocations();
+        generatedItems.clear();
+
+        column.setVisible(true);
+        fakeClientResponse(ui);
+
+        Assert.assertEquals(Arrays.asList("a", "b", "c"), generatedItems);
+        List<PendingJavaScriptInvocation> invocations = ui.getInternals()
+                .dumpPendingJavaScriptInvocations();
+        Assert.assertTrue(invocations.stream()
+                .anyMatch(invocation -> invocation.getInvocation()
+                        .getExpression().contains("updateFlatData")));
+    }
+
+    @Test
+    public void shownComponentColumn_componentsRegenerated() {
+        List<Span> components = new ArrayList<>();
+        Column<String> componentColumn = grid
+                .addColumn(new ComponentRenderer<>(item -> {
+                    Span span = new Span(item);
+                    components.add(span);
+                    return span;
+                }));
+        grid.getDataCommunicator().reset();
+        fakeClientResponse(ui);
+        Assert.assertEquals(3, components.size());
+        List<Span> initial = new ArrayList<>(components);
+        components.clear();
+
+        componentColumn.setVisible(false);
+        fakeClientResponse(ui);
+        initial.forEach(
+                span -> Assert.assertNull(span.getElement().getParent()));
+
+        componentColumn.setVisible(true);
+        fakeClientResponse(ui);
+
+        Assert.assertEquals(Arrays.asList("a", "b", "c"),
+                components.stream().map(Span::getText)
+                        .collect(Collectors.toList()));
+        components.forEach(span -> Assert
+                .assertNotNull(span.getElement().getParent()));
+    }
+
+    @Test
+    public void removeHiddenColumn_showingOtherColumnStillWorks() {
+        Column<String> other = grid.addColumn(item -> item);
+        other.setVisible(false);
+        column.setVisible(false);
+        grid.removeColumn(column);
+        grid.getDataCommunicator().reset();
+        fakeClientResponse(ui);
+
+        other.setVisible(true);
+        Assert.assertTrue(other.isVisible());
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2000-2017 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.grid;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.flow.component.grid.editor.EditorImplTest.MockUI;
+import com.vaadin.flow.data.provider.KeyMapper;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+
+import static com.vaadin.flow.component.grid.GridTestHelper.attach;
+import static com.vaadin.flow.component.grid.GridTestHelper.fakeClientResponse;
+
+public class GridConfirmUpdatesTest {
+
+    private Grid<Integer> grid;
+    private MockUI ui;
+
+    @Before
+    public void setup() {
+        grid = new Grid<>();
+        grid.setItems(IntStream.range(0, 200).boxed()
+                .collect(Collectors.toList()));
+        grid.addColumn(item -> item);
+        ui = attach(grid);
+        fakeClientResponse(ui);
+    }
+
+    @Test
+    public void confirmUpdates_batchedIds_passivatedItemsReleased() {
+        KeyMapper<Integer> keyMapper = grid.getDataCommunicator()
+                .getKeyMapper();
+        grid.getDataCommunicator().setRequestedRange(100, 50);
+        fakeClientResponse(ui);
+        Assert.assertTrue(keyMapper.has(0));
+
+        JsonArray ids = Json.createArray();
+        for (int id = 0; id < 10; id++) {
+            ids.set(id, id);
+        }
+        callConfirmUpdates(ids);
+
+        Assert.assertFalse(keyMapper.has(0));
+        Assert.assertTrue(keyMapper.has(100));
+    }
+
+    private void callConfirmUpdates(JsonArray ids) {
+        try {
+            Method method = Grid.class.getDeclaredMethod("confirmUpdates",
+                    JsonArray.class);
+            method.setAccessible(true);
+            method.invoke(grid, ids);
+        } catch (NoSuchMethodException | SecurityException
+                | IllegalAccessException | IllegalArgumentException
+                | InvocationTargetException e) {
+            Assert.fail("Could not call Grid.confirmUpdates");
+        }
+    }
+}
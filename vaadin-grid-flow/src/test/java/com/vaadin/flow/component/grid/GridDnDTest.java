@@ -1,5 +1,6 @@
 package com.vaadin.flow.component.grid;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -13,6 +14,8 @@ import com.vaadin.flow.component.dnd.DropTarget;
 import com.vaadin.flow.component.dnd.EffectAllowed;
 import com.vaadin.flow.component.grid.dnd.GridDragEndEvent;
 import com.vaadin.flow.component.grid.dnd.GridDragStartEvent;
+import com.vaadin.flow.component.grid.dnd.GridDropMode;
+import com.vaadin.flow.component.grid.editor.EditorImplTest.MockUI;
 import com.vaadin.flow.router.RouterLink;
 import org.junit.Assert;
 import org.junit.Before;
@@ -22,10 +25,15 @@ import elemental.json.Json;
 import elemental.json.JsonArray;
 import elemental.json.JsonObject;
 
+import static com.vaadin.flow.component.grid.GridTestHelper.attach;
+import static com.vaadin.flow.component.grid.GridTestHelper.dumpSentRows;
+import static com.vaadin.flow.component.grid.GridTestHelper.fakeClientResponse;
+
 public class GridDnDTest {
 
     private Grid<String> grid;
     private UI ui;
+    private MockUI mockUI;
 
     @Before
     public void setup() {
@@ -78,4 +86,90 @@ public class GridDnDTest {
         Assert.assertNull("Drag data not cleared", ComponentUtil.getData(grid, Grid.DRAG_SOURCE_DATA_KEY));
     }
 
+    @Test
+    public void setDragDataGenerator_null_removesType() {
+        grid.setDragDataGenerator("text", item -> item);
+        grid.setDragDataGenerator("text/html", item -> "<b>" + item + "</b>");
+        grid.setDragDataGenerator("text", null);
+
+        JsonArray types = (JsonArray) grid.getElement()
+                .getPropertyRaw("__dragDataTypes");
+        Assert.assertEquals(1, types.length());
+        Assert.assertEquals("text/html", types.getString(0));
+    }
+
+    @Test
+    public void noDragAndDrop_filtersNotCalled() {
+        List<String> filtered = new ArrayList<>();
+        Grid<String> attached = attachGrid();
+        attached.setDragFilter(item -> filtered.add(item));
+        attached.setDropFilter(item -> filtered.add(item));
+
+        List<JsonObject> rows = getSentRows(attached);
+
+        Assert.assertEquals(3, rows.size());
+        Assert.assertTrue(filtered.isEmpty());
+        rows.forEach(this::assertNoDragAndDropData);
+    }
+
+    @Test
+    public void rowsDraggable_disabledAgain_noDragDisabledSent() {
+        Grid<String> attached = attachGrid();
+        attached.setRowsDraggable(true);
+        attached.setDragFilter(item -> !"b".equals(item));
+        Assert.assertEquals(1, getSentRows(attached).stream()
+                .filter(row -> row.hasKey("dragDisabled")).count());
+
+        attached.setRowsDraggable(false);
+        attached.getDataCommunicator().reset();
+
+        getSentRows(attached).forEach(this::assertNoDragAndDropData);
+    }
+
+    @Test
+    public void dropMode_disabledAgain_noDropDisabledSent() {
+        Grid<String> attached = attachGrid();
+        attached.setDropMode(GridDropMode.BETWEEN);
+        attached.setDropFilter(item -> !"b".equals(item));
+        Assert.assertEquals(1, getSentRows(attached).stream()
+                .filter(row -> row.hasKey("dropDisabled")).count());
+
+        attached.setDropMode(null);
+        attached.getDataCommunicator().reset();
+
+        getSentRows(attached).forEach(this::assertNoDragAndDropData);
+    }
+
+    @Test
+    public void dragDataGenerator_removed_noDragDataSent() {
+        Grid<String> attached = attachGrid();
+        attached.setDragDataGenerator("text", item -> item);
+        List<JsonObject> rows = getSentRows(attached);
+        Assert.assertEquals(3, rows.size());
+        rows.forEach(row -> Assert.assertTrue(row.hasKey("dragData")));
+
+        attached.setDragDataGenerator("text", null);
+
+        getSentRows(attached).forEach(this::assertNoDragAndDropData);
+    }
+
+    private Grid<String> attachGrid() {
+        Grid<String> attached = new Grid<>();
+        attached.setItems("a", "b", "c");
+        attached.addColumn(item -> item);
+        mockUI = attach(attached);
+        getSentRows(attached);
+        return attached;
+    }
+
+    private void assertNoDragAndDropData(JsonObject row) {
+        Assert.assertFalse(row.hasKey("dragDisabled"));
+        Assert.assertFalse(row.hasKey("dropDisabled"));
+        Assert.assertFalse(row.hasKey("dragData"));
+    }
+
+    private List<JsonObject> getSentRows(Grid<String> attached) {
+        fakeClientResponse(mockUI);
+        return new ArrayList<>(dumpSentRows(mockUI, attached).values());
+    }
 }
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2000-2017 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.grid;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.flow.component.Text;
+import com.vaadin.flow.component.grid.editor.EditorImplTest.MockUI;
+import com.vaadin.flow.data.provider.ListDataProvider;
+import com.vaadin.flow.data.renderer.ComponentRenderer;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+
+import static com.vaadin.flow.component.grid.GridTestHelper.attach;
+import static com.vaadin.flow.component.grid.GridTestHelper.fakeClientResponse;
+
+public class GridItemDetailsTest {
+
+    private Grid<String> grid;
+    private MockUI ui;
+    private List<String> createdDetails = new ArrayList<>();
+
+    @Before
+    public void setup() {
+        grid = new Grid<>();
+        grid.setItems("a", "b", "c", "d", "e");
+        grid.addColumn(item -> item);
+        grid.setItemDetailsRenderer(new ComponentRenderer<>(item -> {
+            createdDetails.add(item);
+            return new Text(item);
+        }));
+        grid.setMaxRetainedItemDetails(2);
+        Arrays.asList("a", "b", "c", "d", "e")
+                .forEach(item -> grid.setDetailsVisible(item, true));
+        ui = attach(grid);
+        fakeClientResponse(ui);
+        ui.getInternals().dumpPendingJavaScriptInvocations();
+    }
+
+    @Test
+    public void detailsVisible_onlyRetainedDetailsBuilt() {
+        Assert.assertEquals(Arrays.asList("a", "b"), createdDetails);
+        Assert.assertTrue(grid.isDetailsVisible("e"));
+    }
+
+    @Test
+    public void requestItemDetails_detailsBuilt_leastRecentlyUsedEvicted() {
+        createdDetails.clear();
+        callRequestItemDetails("d", "e");
+        fakeClientResponse(ui);
+
+        Assert.assertEquals(Arrays.asList("d", "e"), createdDetails);
+        // One call for the built details and one for the evicted details
+        Assert.assertEquals(2, ui.getInternals()
+                .dumpPendingJavaScriptInvocations().size());
+        Assert.assertTrue(grid.isDetailsVisible("a"));
+
+        createdDetails.clear();
+        callRequestItemDetails("d", "e");
+        fakeClientResponse(ui);
+        Assert.assertTrue(createdDetails.isEmpty());
+    }
+
+    @Test
+    public void requestItemDetails_moreThanLimit_requestedDetailsRetained() {
+        createdDetails.clear();
+        callRequestItemDetails("a", "b", "c");
+        fakeClientResponse(ui);
+
+        Assert.assertEquals(Arrays.asList("c"), createdDetails);
+        Assert.assertEquals(1, ui.getInternals()
+                .dumpPendingJavaScriptInvocations().size());
+    }
+
+    @Test
+    public void setDetailsVisible_detailsBuiltImmediately() {
+        createdDetails.clear();
+        grid.setDetailsVisible("c", true);
+        fakeClientResponse(ui);
+
+        Assert.assertEquals(Arrays.asList("c"), createdDetails);
+    }
+
+    @Test
+    public void setDetailsVisible_visibilityStoredById() {
+        Grid<StringBuilder> idGrid = new Grid<>();
+        idGrid.setDataProvider(new ListDataProvider<StringBuilder>(
+                Arrays.asList(new StringBuilder("a"))) {
+            @Override
+            public Object getId(StringBuilder item) {
+                return item.toString();
+            }
+        });
+        idGrid.setItemDetailsRenderer(
+                new ComponentRenderer<>(item -> new Text(item.toString())));
+
+        idGrid.setDetailsVisible(new StringBuilder("a"), true);
+        Assert.assertTrue(idGrid.isDetailsVisible(new StringBuilder("a")));
+
+        idGrid.setDetailsVisible(new StringBuilder("a"), false);
+        Assert.assertFalse(idGrid.isDetailsVisible(new StringBuilder("a")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setMaxRetainedItemDetails_zero_throws() {
+        grid.setMaxRetainedItemDetails(0);
+    }
+
+    private void callRequestItemDetails(String... items) {
+        JsonArray keys = Json.createArray();
+        for (String item : items) {
+            keys.set(keys.length(),
+                    grid.getDataCommunicator().getKeyMapper().key(item));
+        }
+        try {
+            Method method = Grid.class.getDeclaredMethod("requestItemDetails",
+                    JsonArray.class);
+            method.setAccessible(true);
+            method.invoke(grid, keys);
+        } catch (NoSuchMethodException | SecurityException
+                | IllegalAccessException | IllegalArgumentException
+                | InvocationTargetException e) {
+            Assert.fail("Could not call Grid.requestItemDetails");
+        }
+    }
+}
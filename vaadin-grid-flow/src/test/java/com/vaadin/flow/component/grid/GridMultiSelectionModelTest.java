@@ -25,6 +25,7 @@ import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
 import org.junit.Before;
 import org.junit.Ignore;
@@ -33,8 +34,10 @@ import org.mockito.Mockito;
 
 import com.vaadin.flow.component.grid.Grid.SelectionMode;
 import com.vaadin.flow.data.provider.ListDataProvider;
+import com.vaadin.flow.data.provider.Query;
 import com.vaadin.flow.data.selection.MultiSelectionEvent;
 import com.vaadin.flow.data.selection.MultiSelectionListener;
+import com.vaadin.flow.function.SerializablePredicate;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -548,6 +551,245 @@ public class GridMultiSelectionModelTest {
 
     }
 
+    @Test
+    public void isSelected_differentInstanceWithSameId_selected() {
+        Grid<NoEquals> g = new Grid<>();
+        g.setDataProvider(new ListDataProvider<NoEquals>(
+                Arrays.asList(new NoEquals("A"), new NoEquals("B"))) {
+            @Override
+            public Object getId(NoEquals item) {
+                return item.getLabel();
+            }
+        });
+        g.setSelectionMode(Grid.SelectionMode.MULTI);
+        g.select(new NoEquals("A"));
+
+        assertTrue(g.getSelectionModel().isSelected(new NoEquals("A")));
+        assertFalse(g.getSelectionModel().isSelected(new NoEquals("B")));
+        assertFalse(g.getSelectionModel().isSelected(null));
+
+        g.getSelectionModel().deselectFromClient(new NoEquals("A"));
+        assertFalse(g.getSelectionModel().isSelected(new NoEquals("A")));
+        assertEquals(0, g.getSelectedItems().size());
+    }
+
+    @Test
+    public void oldSelection_readAfterLaterChanges_reflectsStateAtEvent() {
+        List<MultiSelectionEvent<Grid<Person>, Person>> captured = new ArrayList<>();
+        selectionModel.addMultiSelectionListener(captured::add);
+
+        selectionModel.select(PERSON_C);
+        selectionModel.select(PERSON_A);
+        selectionModel.select(PERSON_B);
+        Set<Person> snapshot = selectionModel.getSelectedItems();
+        selectionModel.deselect(PERSON_A);
+        selectionModel.deselectAll();
+        selectionModel.updateSelection(
+                new LinkedHashSet<>(Arrays.asList(PERSON_B, PERSON_A)),
+                Collections.emptySet());
+
+        assertEquals(Arrays.asList(PERSON_C, PERSON_A, PERSON_B),
+                new ArrayList<>(snapshot));
+        assertEquals(Collections.emptyList(),
+                new ArrayList<>(captured.get(0).getOldSelection()));
+        assertEquals(Arrays.asList(PERSON_C, PERSON_A, PERSON_B),
+                new ArrayList<>(captured.get(3).getOldSelection()));
+        assertEquals(Arrays.asList(PERSON_C, PERSON_B),
+                new ArrayList<>(captured.get(4).getOldSelection()));
+        assertEquals(Collections.emptyList(),
+                new ArrayList<>(captured.get(5).getOldSelection()));
+        assertEquals(Arrays.asList(PERSON_B, PERSON_A),
+                new ArrayList<>(selectionModel.getSelectedItems()));
+    }
+
+    @Test
+    public void selectAll_itemsNotFetchedUntilSelectionIsRead() {
+        AtomicInteger fetches = new AtomicInteger();
+        Grid<Person> grid = new Grid<>();
+        grid.setDataProvider(new ListDataProvider<Person>(
+                Arrays.asList(PERSON_A, PERSON_B, PERSON_C)) {
+            @Override
+            public Stream<Person> fetch(
+                    Query<Person, SerializablePredicate<Person>> query) {
+                fetches.incrementAndGet();
+                return super.fetch(query);
+            }
+        });
+        GridMultiSelectionModel<Person> model = (GridMultiSelectionModel<Person>) grid
+                .setSelectionMode(SelectionMode.MULTI);
+        List<MultiSelectionEvent<Grid<Person>, Person>> captured = new ArrayList<>();
+        model.addMultiSelectionListener(captured::add);
+
+        model.selectAll();
+        model.deselect(PERSON_B);
+
+        assertEquals(0, fetches.get());
+        assertTrue(model.isSelected(PERSON_A));
+        assertFalse(model.isSelected(PERSON_B));
+        assertTrue(model.isSelected(PERSON_C));
+        assertEquals(2, captured.size());
+
+        assertEquals(Collections.emptyList(),
+                new ArrayList<>(captured.get(0).getOldSelection()));
+        assertEquals(Arrays.asList(PERSON_A, PERSON_B, PERSON_C),
+                new ArrayList<>(captured.get(0).getNewSelection()));
+        assertEquals(Arrays.asList(PERSON_A, PERSON_C),
+                new ArrayList<>(model.getSelectedItems()));
+        assertEquals(Optional.of(PERSON_A), model.getFirstSelectedItem());
+
+        model.deselectAll();
+        assertFalse(model.isSelected(PERSON_A));
+        assertFalse(model.isSelected(PERSON_C));
+        assertEquals(3, captured.size());
+        assertEquals(Arrays.asList(PERSON_A, PERSON_C),
+                new ArrayList<>(captured.get(2).getOldSelection()));
+        assertEquals(Collections.emptyList(),
+                new ArrayList<>(captured.get(2).getNewSelection()));
+    }
+
+    @Test
+    public void selectAll_selectedItemsCopiedWhenRequested() {
+        AtomicInteger fetches = new AtomicInteger();
+        List<Person> people = new ArrayList<>(
+                Arrays.asList(PERSON_A, PERSON_B, PERSON_C));
+        ListDataProvider<Person> dataProvider = new ListDataProvider<Person>(
+                people) {
+            @Override
+            public Stream<Person> fetch(
+                    Query<Person, SerializablePredicate<Person>> query) {
+                fetches.incrementAndGet();
+                return super.fetch(query);
+            }
+        };
+        grid.setDataProvider(dataProvider);
+        selectionModel.selectAll();
+        selectionModel.deselect(PERSON_B);
+        fetches.set(0);
+
+        Set<Person> selection = selectionModel.getSelectedItems();
+        assertEquals(1, fetches.get());
+        assertEquals(2, selection.size());
+        assertFalse(selection.isEmpty());
+        assertEquals(Arrays.asList(PERSON_A, PERSON_C),
+                Arrays.asList(selection.toArray()));
+        assertTrue(selection.contains(PERSON_A));
+        assertEquals(1, fetches.get());
+
+        people.remove(PERSON_A);
+        dataProvider.refreshAll();
+        assertEquals(Arrays.asList(PERSON_A, PERSON_C),
+                new ArrayList<>(selection));
+        assertEquals(1, fetches.get());
+    }
+
+    @Test
+    public void selectAll_itemsAddedAfterwardsSelected() {
+        Person personD = new Person("d", 4);
+        List<Person> people = new ArrayList<>(
+                Arrays.asList(PERSON_A, PERSON_B, PERSON_C));
+        ListDataProvider<Person> dataProvider = new ListDataProvider<>(
+                people);
+        grid.setDataProvider(dataProvider);
+        selectionModel.selectAll();
+
+        people.add(personD);
+        dataProvider.refreshAll();
+
+        // Select all is a rule for every item that is not deselected
+        assertTrue(selectionModel.isSelected(personD));
+        assertEquals(Arrays.asList(PERSON_A, PERSON_B, PERSON_C, personD),
+                new ArrayList<>(selectionModel.getSelectedItems()));
+
+        selectionModel.deselect(personD);
+        assertFalse(selectionModel.isSelected(personD));
+        assertTrue(selectionModel.isSelected(PERSON_C));
+    }
+
+    @Test
+    public void selectAll_dataProviderChanged_oldSelectionFromPreviousProvider() {
+        Person personD = new Person("d", 4);
+        grid.setDataProvider(
+                new ListDataProvider<>(Arrays.asList(PERSON_A, PERSON_B)));
+        selectionModel.selectAll();
+        List<MultiSelectionEvent<Grid<Person>, Person>> captured = new ArrayList<>();
+        selectionModel.addMultiSelectionListener(captured::add);
+
+        grid.setDataProvider(
+                new ListDataProvider<>(Arrays.asList(PERSON_C, personD)));
+
+        assertEquals(1, captured.size());
+        assertEquals(Arrays.asList(PERSON_A, PERSON_B),
+                new ArrayList<>(captured.get(0).getOldSelection()));
+        assertFalse(selectionModel.isSelected(PERSON_C));
+
+        selectionModel.selectAll();
+        selectionModel.deselect(personD);
+        assertTrue(selectionModel.isSelected(PERSON_C));
+        assertEquals(Arrays.asList(PERSON_C),
+                new ArrayList<>(selectionModel.getSelectedItems()));
+        assertEquals(Arrays.asList(PERSON_C, personD),
+                new ArrayList<>(captured.get(2).getOldSelection()));
+    }
+
+    @Test
+    public void selectFromClient_dataProviderSizeQueriedOncePerDataChange() {
+        AtomicInteger sizeQueries = new AtomicInteger();
+        ListDataProvider<Person> dataProvider = new ListDataProvider<Person>(
+                Arrays.asList(PERSON_A, PERSON_B, PERSON_C)) {
+            @Override
+            public int size(
+                    Query<Person, SerializablePredicate<Person>> query) {
+                sizeQueries.incrementAndGet();
+                return super.size(query);
+            }
+        };
+        grid.setDataProvider(dataProvider);
+        int initialQueries = sizeQueries.get();
+
+        selectionModel.selectFromClient(PERSON_A);
+        selectionModel.selectFromClient(PERSON_B);
+        selectionModel.deselectFromClient(PERSON_A);
+        selectionModel.selectFromClient(PERSON_A);
+        assertEquals(initialQueries + 1, sizeQueries.get());
+
+        dataProvider.refreshItem(PERSON_A);
+        selectionModel.deselectFromClient(PERSON_A);
+        selectionModel.selectFromClient(PERSON_A);
+        assertEquals(initialQueries + 1, sizeQueries.get());
+
+        dataProvider.refreshAll();
+        selectionModel.deselectFromClient(PERSON_A);
+        selectionModel.selectFromClient(PERSON_A);
+        assertEquals(initialQueries + 2, sizeQueries.get());
+    }
+
+    @Test
+    public void updateSelectionFromClient_batch_singleEvent() {
+        selectionModel.select(PERSON_A);
+        events.set(0);
+
+        selectionModel.updateSelectionFromClient(
+                new LinkedHashSet<>(Arrays.asList(PERSON_A, PERSON_C, PERSON_B)),
+                Collections.emptySet());
+
+        assertEquals(1, events.get());
+        assertEquals(Collections.singletonList(PERSON_A),
+                oldSelectionCapture.get());
+        assertEquals(Arrays.asList(PERSON_A, PERSON_C, PERSON_B),
+                currentSelectionCapture.get());
+
+        selectionModel.updateSelectionFromClient(Collections.emptySet(),
+                new LinkedHashSet<>(Arrays.asList(PERSON_C, PERSON_A)));
+
+        assertEquals(2, events.get());
+        assertEquals(Collections.singletonList(PERSON_B),
+                currentSelectionCapture.get());
+
+        selectionModel.updateSelectionFromClient(asSet(PERSON_B),
+                asSet(PERSON_A));
+        assertEquals(2, events.get());
+    }
+
     public static class NoEquals {
         private String label;
 
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2000-2017 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.grid;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.flow.component.grid.PrefetchStrategy.Viewport;
+import com.vaadin.flow.component.grid.PrefetchStrategy.Window;
+import com.vaadin.flow.component.grid.editor.EditorImplTest.MockUI;
+
+import static com.vaadin.flow.component.grid.GridTestHelper.attach;
+import static com.vaadin.flow.component.grid.GridTestHelper.fakeClientResponse;
+
+public class GridPrefetchStrategyTest {
+
+    private Grid<Integer> grid;
+    private MockUI ui;
+    private List<Integer> generatedItems = new ArrayList<>();
+    private List<Viewport> viewports = new ArrayList<>();
+
+    @Before
+    public void setup() {
+        grid = new Grid<>();
+        grid.setItems(IntStream.range(0, 1000).boxed()
+                .collect(Collectors.toList()));
+        grid.addColumn(item -> {
+            generatedItems.add(item);
+            return item;
+        });
+        ui = attach(grid);
+        fakeClientResponse(ui);
+        generatedItems.clear();
+    }
+
+    @Test
+    public void setViewportRange_windowAddedAndAlignedToPages() {
+        grid.setPrefetchStrategy(viewport -> {
+            viewports.add(viewport);
+            return new Window(10, 60);
+        });
+        callSetViewportRange(100, 50, 20, 300);
+        fakeClientResponse(ui);
+
+        Assert.assertEquals(1, viewports.size());
+        Viewport viewport = viewports.get(0);
+        Assert.assertEquals(100, viewport.getStart());
+        Assert.assertEquals(20, viewport.getVisibleRowCount());
+        Assert.assertEquals(300, viewport.getVelocity(), 0);
+        Assert.assertEquals(50, viewport.getPageSize());
+        Assert.assertTrue(viewport.getPageFetchMillis() >= 0);
+        // Rows 50-249
+        Assert.assertEquals(200, generatedItems.size());
+        Assert.assertEquals(Integer.valueOf(50), generatedItems.get(0));
+        Assert.assertEquals(Integer.valueOf(249),
+                generatedItems.get(generatedItems.size() - 1));
+    }
+
+    @Test
+    public void setViewportRange_noStrategy_viewportRangeRequested() {
+        callSetViewportRange(100, 50, 20, 300);
+        fakeClientResponse(ui);
+
+        Assert.assertEquals(50, generatedItems.size());
+        Assert.assertEquals(Integer.valueOf(100), generatedItems.get(0));
+    }
+
+    @Test
+    public void setPrefetchStrategy_sentAgainAfterReattach() {
+        grid.setPrefetchStrategy(new AdaptivePrefetchStrategy());
+        fakeClientResponse(ui);
+        Assert.assertEquals(1, countServerPrefetchInvocations());
+
+        ui.getElement().removeChild(grid.getElement());
+        fakeClientResponse(ui);
+        ui.getElement().appendChild(grid.getElement());
+        fakeClientResponse(ui);
+
+        Assert.assertEquals(1, countServerPrefetchInvocations());
+    }
+
+    @Test
+    public void setPrefetchStrategy_beforeAttach_sentOnce() {
+        Grid<Integer> detached = new Grid<>();
+        detached.setPrefetchStrategy(new AdaptivePrefetchStrategy());
+        detached.setPrefetchStrategy(null);
+        detached.setPrefetchStrategy(new AdaptivePrefetchStrategy());
+        ui.getInternals().dumpPendingJavaScriptInvocations();
+
+        ui.getElement().appendChild(detached.getElement());
+        fakeClientResponse(ui);
+
+        Assert.assertEquals(1, countServerPrefetchInvocations());
+    }
+
+    @Test
+    public void adaptiveStrategy_slowScrolling_halfViewportOnEachSide() {
+        Window window = new AdaptivePrefetchStrategy()
+                .getPrefetchWindow(new Viewport(0, 50, 20, 5, 50, 100));
+
+        Assert.assertEquals(10, window.getBefore());
+        Assert.assertEquals(10, window.getAfter());
+    }
+
+    @Test
+    public void adaptiveStrategy_fastScrolling_biasedInDirectionOfTravel() {
+        AdaptivePrefetchStrategy strategy = new AdaptivePrefetchStrategy();
+
+        Window down = strategy
+                .getPrefetchWindow(new Viewport(0, 50, 20, 400, 50, 100));
+        Assert.assertEquals(5, down.getBefore());
+        Assert.assertEquals(120, down.getAfter());
+
+        Window up = strategy
+                .getPrefetchWindow(new Viewport(0, 50, 20, -400, 50, 100));
+        Assert.assertEquals(120, up.getBefore());
+        Assert.assertEquals(5, up.getAfter());
+    }
+
+    @Test
+    public void adaptiveStrategy_veryFastScrolling_limited() {
+        Window window = new AdaptivePrefetchStrategy(300, 200)
+                .getPrefetchWindow(new Viewport(0, 50, 20, 10000, 50, 100));
+
+        Assert.assertEquals(300, window.getAfter());
+    }
+
+    private void callSetViewportRange(int start, int length,
+            int visibleRowCount, double velocity) {
+        try {
+            Method method = Grid.class.getDeclaredMethod("setViewportRange",
+                    int.class, int.class, int.class, double.class);
+            method.setAccessible(true);
+            method.invoke(grid, start, length, visibleRowCount, velocity);
+        } catch (NoSuchMethodException | SecurityException
+                | IllegalAccessException | IllegalArgumentException
+                | InvocationTargetException e) {
+            Assert.fail("Could not call Grid.setViewportRange");
+        }
+    }
+
+    private long countServerPrefetchInvocations() {
+        return ui.getInternals().dumpPendingJavaScriptInvocations().stream()
+                .filter(invocation -> invocation.getInvocation()
+                        .getExpression().contains("setServerPrefetch"))
+                .count();
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2000-2017 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.grid;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.flow.component.grid.Grid.Column;
+import com.vaadin.flow.component.grid.editor.EditorImplTest.MockUI;
+import com.vaadin.flow.component.internal.PendingJavaScriptInvocation;
+
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+
+import static com.vaadin.flow.component.grid.GridTestHelper.attach;
+import static com.vaadin.flow.component.grid.GridTestHelper.fakeClientResponse;
+
+public class GridRefreshColumnTest {
+
+    private Grid<String> grid;
+    private Column<String> firstColumn;
+    private Column<String> secondColumn;
+    private MockUI ui;
+    private List<String> generatedItems = new ArrayList<>();
+
+    @Before
+    public void setup() {
+        grid = new Grid<>();
+        grid.setItems("a", "b", "c");
+        firstColumn = grid.addColumn(item -> {
+            generatedItems.add(item);
+            return item;
+        });
+        secondColumn = grid.addColumn(item -> item.toUpperCase());
+        ui = attach(grid);
+        fakeClientResponse(ui);
+        ui.getInternals().dumpPendingJavaScriptInvocations();
+        generatedItems.clear();
+    }
+
+    @Test
+    public void refreshColumn_onlyColumnDataGenerated() {
+        grid.refreshColumn(secondColumn, "a", "c");
+        fakeClientResponse(ui);
+
+        Assert.assertTrue(generatedItems.isEmpty());
+        JsonArray patches = getPatches();
+        Assert.assertEquals(2, patches.length());
+        JsonObject patch = patches.getObject(0);
+        Assert.assertEquals(2, patch.keys().length);
+        Assert.assertEquals(grid.getDataCommunicator().getKeyMapper().key("a"),
+                patch.getString("key"));
+        Assert.assertEquals("A",
+                patch.getString(secondColumn.getInternalId()));
+    }
+
+    @Test
+    public void refreshColumn_sameRoundTrip_onePatchPerItem() {
+        grid.refreshColumn(secondColumn, "a");
+        grid.refreshColumn(firstColumn, "a", "b");
+        grid.refreshColumn(secondColumn, "a");
+        fakeClientResponse(ui);
+
+        Assert.assertEquals(Arrays.asList("a", "b"), generatedItems);
+        JsonArray patches = getPatches();
+        Assert.assertEquals(2, patches.length());
+        Assert.assertEquals(3, patches.getObject(0).keys().length);
+    }
+
+    @Test
+    public void refreshColumn_itemNotOnClient_ignored() {
+        grid.refreshColumn(firstColumn, "d");
+        fakeClientResponse(ui);
+
+        Assert.assertTrue(generatedItems.isEmpty());
+        Assert.assertTrue(ui.getInternals().dumpPendingJavaScriptInvocations()
+                .isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void refreshColumn_columnOfOtherGrid_throws() {
+        Grid<String> other = new Grid<>();
+        grid.refreshColumn(other.addColumn(item -> item), "a");
+    }
+
+    private JsonArray getPatches() {
+        List<PendingJavaScriptInvocation> invocations = ui.getInternals()
+                .dumpPendingJavaScriptInvocations();
+        Assert.assertEquals(1, invocations.size());
+        // The first parameter is the grid element
+        return (JsonArray) invocations.get(0).getInvocation().getParameters()
+                .get(1);
+    }
+}
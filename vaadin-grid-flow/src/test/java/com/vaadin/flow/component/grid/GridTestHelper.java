@@ -0,0 +1,112 @@
+/*
+ * Copyright 2000-2017 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.grid;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.vaadin.flow.component.Component;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.grid.editor.EditorImplTest.MockUI;
+import com.vaadin.flow.component.internal.PendingJavaScriptInvocation;
+
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+
+/**
+ * Helpers for tests that attach a grid to a {@link MockUI} and check what is
+ * sent to the client.
+ */
+public final class GridTestHelper {
+
+    private GridTestHelper() {
+    }
+
+    /**
+     * Attaches the given components to a new mock UI.
+     *
+     * @param components
+     *            the components to attach
+     * @return the mock UI
+     */
+    public static MockUI attach(Component... components) {
+        return attach(new MockUI(), components);
+    }
+
+    /**
+     * Attaches the given components to the given UI.
+     *
+     * @param <U>
+     *            the type of the UI
+     * @param ui
+     *            the UI to attach to
+     * @param components
+     *            the components to attach
+     * @return the given UI
+     */
+    public static <U extends UI> U attach(U ui, Component... components) {
+        for (Component component : components) {
+            ui.getElement().appendChild(component.getElement());
+        }
+        return ui;
+    }
+
+    /**
+     * Runs the tasks scheduled before the client response and collects the
+     * changes, as if a response was written to the client.
+     *
+     * @param ui
+     *            the UI to respond for
+     */
+    public static void fakeClientResponse(UI ui) {
+        ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+        ui.getInternals().getStateTree().collectChanges(ignore -> {
+        });
+    }
+
+    /**
+     * Gets the rows sent to the client for the given grid with
+     * {@code $connector.set} since the invocations were last dumped. The
+     * pending JavaScript invocations of the UI are cleared.
+     *
+     * @param ui
+     *            the UI of the grid
+     * @param grid
+     *            the grid to get the rows of
+     * @return the sent rows by their index
+     */
+    public static Map<Integer, JsonObject> dumpSentRows(UI ui, Grid<?> grid) {
+        Map<Integer, JsonObject> rows = new TreeMap<>();
+        for (PendingJavaScriptInvocation invocation : ui.getInternals()
+                .dumpPendingJavaScriptInvocations()) {
+            List<Serializable> parameters = invocation.getInvocation()
+                    .getParameters();
+            if (parameters.get(0) != grid.getElement()
+                    || !invocation.getInvocation().getExpression()
+                            .contains("$connector.set(")) {
+                continue;
+            }
+            int start = ((Number) parameters.get(1)).intValue();
+            JsonArray items = (JsonArray) parameters.get(2);
+            for (int i = 0; i < items.length(); i++) {
+                rows.put(start + i, items.getObject(i));
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2000-2017 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.grid;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.flow.component.grid.Grid.UpdateQueue;
+import com.vaadin.flow.component.grid.GridArrayUpdater.UpdateQueueData;
+import com.vaadin.flow.dom.Element;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+import elemental.json.JsonValue;
+
+public class GridUpdateQueueTest {
+
+    private UpdateQueueData data;
+    private UpdateQueue queue;
+    private List<JsonValue> items;
+
+    @Before
+    public void setup() {
+        data = new UpdateQueueData(new Element("vaadin-grid"), "key");
+        queue = new UpdateQueue(data, 3);
+        items = Arrays.asList(item("1", false), item("2", true),
+                item("3", false));
+    }
+
+    @Test
+    public void encodeItems_defaultEncoding_arrayOfObjects() {
+        JsonValue encoded = queue.encodeItems(items);
+
+        Assert.assertTrue(encoded instanceof JsonArray);
+        Assert.assertEquals(3, ((JsonArray) encoded).length());
+        Assert.assertSame(items.get(1), ((JsonArray) encoded).get(1));
+    }
+
+    @Test
+    public void encodeItems_compactEncoding_namesSentOncePerShape() {
+        data.setCompactItemEncoding(true);
+
+        JsonObject encoded = (JsonObject) queue.encodeItems(items);
+
+        JsonArray shapes = encoded.getArray("shapes");
+        Assert.assertEquals(2, shapes.length());
+        Assert.assertEquals("[\"key\",\"col0\"]", shapes.get(0).toJson());
+        Assert.assertEquals("[\"key\",\"col0\",\"selected\"]",
+                shapes.get(1).toJson());
+
+        JsonArray rows = encoded.getArray("rows");
+        Assert.assertEquals(3, rows.length());
+        Assert.assertEquals("[0,\"1\",\"value 1\"]", rows.get(0).toJson());
+        Assert.assertEquals("[1,\"2\",\"value 2\",true]",
+                rows.get(1).toJson());
+        Assert.assertEquals("[0,\"3\",\"value 3\"]", rows.get(2).toJson());
+    }
+
+    private JsonObject item(String key, boolean selected) {
+        JsonObject item = Json.createObject();
+        item.put("key", key);
+        item.put("col0", "value " + key);
+        if (selected) {
+            item.put("selected", true);
+        }
+        return item;
+    }
+}
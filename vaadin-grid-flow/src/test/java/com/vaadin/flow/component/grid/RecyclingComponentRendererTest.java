@@ -0,0 +1,87 @@
+/*
+ * Copyright 2000-2017 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.grid;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.flow.component.grid.editor.EditorImplTest.MockUI;
+import com.vaadin.flow.component.html.Label;
+
+import static com.vaadin.flow.component.grid.GridTestHelper.attach;
+import static com.vaadin.flow.component.grid.GridTestHelper.fakeClientResponse;
+
+public class RecyclingComponentRendererTest {
+
+    private Grid<Integer> grid;
+    private MockUI ui;
+    private List<Label> createdComponents = new ArrayList<>();
+    private List<Integer> updatedItems = new ArrayList<>();
+    private RecyclingComponentRenderer<Label, Integer> renderer;
+
+    @Before
+    public void setup() {
+        grid = new Grid<>();
+        grid.setItems(IntStream.range(0, 200).boxed()
+                .collect(Collectors.toList()));
+        renderer = new RecyclingComponentRenderer<>(item -> {
+            Label label = new Label(String.valueOf(item));
+            createdComponents.add(label);
+            return label;
+        }, (label, item) -> {
+            label.setText(String.valueOf(item));
+            updatedItems.add(item);
+        });
+        grid.addColumn(renderer);
+        ui = attach(grid);
+        fakeClientResponse(ui);
+    }
+
+    @Test
+    public void reset_componentsReused() {
+        int created = createdComponents.size();
+        Assert.assertEquals(grid.getPageSize(), created);
+
+        grid.getDataCommunicator().reset();
+        fakeClientResponse(ui);
+
+        Assert.assertEquals(created, createdComponents.size());
+        Assert.assertEquals(created, updatedItems.size());
+    }
+
+    @Test
+    public void reset_poolBounded_extraComponentsCreated() {
+        int created = createdComponents.size();
+        renderer.setPoolSize(10);
+
+        grid.getDataCommunicator().reset();
+        fakeClientResponse(ui);
+
+        Assert.assertEquals(10, updatedItems.size());
+        Assert.assertEquals(2 * created - 10, createdComponents.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setPoolSize_negative_throws() {
+        renderer.setPoolSize(-1);
+    }
+}
@@ -0,0 +1,437 @@
+/*
+ * Copyright 2000-2017 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.treegrid;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.flow.component.grid.editor.EditorImplTest.MockUI;
+import com.vaadin.flow.component.internal.PendingJavaScriptInvocation;
+import com.vaadin.flow.data.provider.KeyMapper;
+import com.vaadin.flow.data.provider.hierarchy.HierarchicalQuery;
+import com.vaadin.flow.data.provider.hierarchy.TreeData;
+import com.vaadin.flow.data.provider.hierarchy.TreeDataProvider;
+import com.vaadin.flow.function.SerializablePredicate;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+
+import static com.vaadin.flow.component.grid.GridTestHelper.attach;
+import static com.vaadin.flow.component.grid.GridTestHelper.fakeClientResponse;
+
+public class TreeGridTest {
+
+    private TreeData<String> treeData;
+    private TreeGrid<String> treeGrid;
+
+    @Before
+    public void setup() {
+        treeData = new TreeData<>();
+        for (String root : Arrays.asList("a", "b", "c")) {
+            treeData.addItem(null, root);
+            for (int i = 0; i < 3; i++) {
+                String child = root + i;
+                treeData.addItem(root, child);
+                for (int j = 0; j < 2; j++) {
+                    treeData.addItem(child, child + j);
+                }
+            }
+        }
+        treeGrid = new TreeGrid<>();
+        treeGrid.setDataProvider(new TreeDataProvider<>(treeData));
+    }
+
+    @Test
+    public void getItemsWithChildrenRecursively_breadthFirstUntilDepth() {
+        Assert.assertEquals(
+                Arrays.asList("a", "b", "a0", "a1", "a2", "b0", "b1", "b2"),
+                treeGrid.getItemsWithChildrenRecursively(
+                        Arrays.asList("a", "b"), 1));
+        Assert.assertEquals(Arrays.asList("a"), treeGrid
+                .getItemsWithChildrenRecursively(Arrays.asList("a", "a00"), 0));
+        Assert.assertTrue(treeGrid
+                .getItemsWithChildrenRecursively(Arrays.asList("a"), -1)
+                .isEmpty());
+    }
+
+    @Test
+    public void expandRecursively_childrenBatchProvider_oneCallPerLevel() {
+        List<Collection<String>> calls = new ArrayList<>();
+        treeGrid.setChildrenBatchProvider(parents -> {
+            calls.add(new ArrayList<>(parents));
+            Map<Object, List<String>> children = new HashMap<>();
+            parents.forEach(
+                    parent -> children.put(parent, treeData.getChildren(parent)));
+            return children;
+        });
+
+        treeGrid.expandRecursively(Arrays.asList("a", "b", "c"), 1);
+
+        Assert.assertEquals(2, calls.size());
+        Assert.assertEquals(Arrays.asList("a", "b", "c"), calls.get(0));
+        Assert.assertEquals(9, calls.get(1).size());
+        Assert.assertTrue(treeGrid.isExpanded("a"));
+        Assert.assertTrue(treeGrid.isExpanded("c2"));
+        Assert.assertFalse(treeGrid.isExpanded("c20"));
+
+        treeGrid.collapseRecursively(Arrays.asList("a"), 1);
+
+        Assert.assertEquals(4, calls.size());
+        Assert.assertFalse(treeGrid.isExpanded("a"));
+        Assert.assertFalse(treeGrid.isExpanded("a1"));
+        Assert.assertTrue(treeGrid.isExpanded("b"));
+    }
+
+    @Test
+    public void expandRecursively_childrenBatchProvider_parentsMatchedById() {
+        Map<String, List<String>> tree = new HashMap<>();
+        tree.put("a", Arrays.asList("a0", "a1"));
+        tree.put("a0", Arrays.asList("a00"));
+        TreeData<IdBean> data = new TreeData<>();
+        data.addItem(null, new IdBean("a"));
+        TreeGrid<IdBean> grid = new TreeGrid<>();
+        grid.setDataProvider(new TreeDataProvider<IdBean>(data) {
+            @Override
+            public Object getId(IdBean item) {
+                return item.id;
+            }
+        });
+        // Returns new instances, as loaded from a backend
+        grid.setChildrenBatchProvider(parents -> {
+            Map<Object, List<IdBean>> children = new HashMap<>();
+            parents.forEach(parent -> children.put(parent.id,
+                    tree.getOrDefault(parent.id, Collections.emptyList())
+                            .stream().map(IdBean::new)
+                            .collect(Collectors.toList())));
+            return children;
+        });
+
+        grid.expandRecursively(Arrays.asList(new IdBean("a")), 1);
+
+        Assert.assertTrue(grid.isExpanded(new IdBean("a")));
+        Assert.assertTrue(grid.isExpanded(new IdBean("a0")));
+        Assert.assertFalse(grid.isExpanded(new IdBean("a1")));
+    }
+
+    @Test
+    public void defaultUniqueKeys_collidingHashCodes_keysDiffer() {
+        TreeData<CollidingBean> data = new TreeData<>();
+        CollidingBean first = new CollidingBean();
+        CollidingBean second = new CollidingBean();
+        data.addItems(null, first, second);
+        TreeGrid<CollidingBean> grid = new TreeGrid<>();
+        grid.setDataProvider(new TreeDataProvider<>(data));
+
+        KeyMapper<CollidingBean> keyMapper = grid.getDataCommunicator()
+                .getKeyMapper();
+        String firstKey = keyMapper.key(first);
+        Assert.assertNotEquals(firstKey, keyMapper.key(second));
+        Assert.assertEquals(firstKey, keyMapper.key(first));
+    }
+
+    @Test
+    public void defaultUniqueKeys_expandedItemKeyReleased_sameKeyReused() {
+        KeyMapper<String> keyMapper = treeGrid.getDataCommunicator()
+                .getKeyMapper();
+        String expandedKey = keyMapper.key("a");
+        String collapsedKey = keyMapper.key("b");
+        treeGrid.expand("a");
+
+        keyMapper.remove("a");
+        keyMapper.remove("b");
+
+        Assert.assertEquals(expandedKey, keyMapper.key("a"));
+        Assert.assertNotEquals(collapsedKey, keyMapper.key("b"));
+
+        treeGrid.collapse("a");
+        keyMapper.remove("a");
+        Assert.assertNotEquals(expandedKey, keyMapper.key("a"));
+    }
+
+    @Test
+    public void updateExpandedStates_batch_oneEventPerType() {
+        List<ExpandEvent<String, TreeGrid<String>>> expandEvents = new ArrayList<>();
+        List<CollapseEvent<String, TreeGrid<String>>> collapseEvents = new ArrayList<>();
+        treeGrid.expand("c");
+        treeGrid.addExpandListener(expandEvents::add);
+        treeGrid.addCollapseListener(collapseEvents::add);
+
+        updateExpandedStates(state("a", true), state("b", true),
+                state("c", false), state("b", false), state("b", true),
+                state("a0", true));
+
+        Assert.assertEquals(1, expandEvents.size());
+        Assert.assertEquals(Arrays.asList("a", "b", "a0"),
+                new ArrayList<>(expandEvents.get(0).getItems()));
+        Assert.assertTrue(expandEvents.get(0).isFromClient());
+        Assert.assertEquals(1, collapseEvents.size());
+        Assert.assertEquals(Arrays.asList("c"),
+                new ArrayList<>(collapseEvents.get(0).getItems()));
+        Assert.assertTrue(treeGrid.isExpanded("b"));
+        Assert.assertFalse(treeGrid.isExpanded("c"));
+    }
+
+    @Test
+    public void parentRequestSettings_pushedOncePerRoundTrip() {
+        MockUI ui = attachTreeGrid();
+
+        treeGrid.setParentRequestDelay(100);
+        treeGrid.setParentRequestBatchMaxSize(5);
+        treeGrid.setSubCacheRequestDelayed(false);
+        fakeClientResponse(ui);
+
+        List<PendingJavaScriptInvocation> invocations = getSettingsInvocations(
+                ui);
+        Assert.assertEquals(1, invocations.size());
+        Assert.assertEquals(Arrays.asList(100, 5, false), invocations.get(0)
+                .getInvocation().getParameters().subList(1, 4));
+    }
+
+    @Test
+    public void parentRequestSettings_sentAgainAfterReattach() {
+        treeGrid.setParentRequestDelay(100);
+        MockUI ui = attach(treeGrid);
+        fakeClientResponse(ui);
+        Assert.assertEquals(1, getSettingsInvocations(ui).size());
+
+        ui.getElement().removeChild(treeGrid.getElement());
+        fakeClientResponse(ui);
+        ui.getElement().appendChild(treeGrid.getElement());
+        fakeClientResponse(ui);
+
+        List<PendingJavaScriptInvocation> invocations = getSettingsInvocations(
+                ui);
+        Assert.assertEquals(1, invocations.size());
+        Assert.assertEquals(100, invocations.get(0).getInvocation()
+                .getParameters().get(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setParentRequestBatchMaxSize_zero_throws() {
+        treeGrid.setParentRequestBatchMaxSize(0);
+    }
+
+    @Test
+    public void adaptiveParentRequestBatching_dataProviderTimeMeasured() {
+        treeGrid.setDataProvider(new TreeDataProvider<String>(treeData) {
+            @Override
+            public Stream<String> fetchChildren(
+                    HierarchicalQuery<String, SerializablePredicate<String>> query) {
+                if ("a".equals(query.getParent())) {
+                    sleep(100);
+                }
+                return super.fetchChildren(query);
+            }
+        });
+        MockUI ui = attachTreeGrid();
+        treeGrid.setAdaptiveParentRequestBatching(true);
+        treeGrid.expand("a");
+        fakeClientResponse(ui);
+        ui.getInternals().dumpPendingJavaScriptInvocations();
+
+        JsonObject request = Json.createObject();
+        request.put("firstIndex", 0);
+        request.put("size", 50);
+        request.put("parentKey",
+                treeGrid.getDataCommunicator().getKeyMapper().key("a"));
+        JsonArray requests = Json.createArray();
+        requests.set(0, request);
+        invoke("setParentRequestedRanges", requests);
+        fakeClientResponse(ui);
+        fakeClientResponse(ui);
+
+        Assert.assertEquals(1, getSettingsInvocations(ui).size());
+        // Half of the measured batch time of at least 100 ms
+        Assert.assertTrue(treeGrid.getParentRequestDelay() >= 50);
+        Assert.assertTrue(treeGrid.getParentRequestDelay() <= 200);
+        // A single request takes longer than the 100 ms budget of a batch
+        Assert.assertEquals(5, treeGrid.getParentRequestBatchMaxSize());
+    }
+
+    @Test
+    public void setPageCacheLimit_pushedToClient() {
+        MockUI ui = attachTreeGrid();
+
+        treeGrid.setPageCacheLimit(200);
+        fakeClientResponse(ui);
+
+        List<PendingJavaScriptInvocation> invocations = getPageCacheLimitInvocations(
+                ui);
+        Assert.assertEquals(1, invocations.size());
+        Assert.assertEquals(200, invocations.get(0).getInvocation()
+                .getParameters().get(1));
+        Assert.assertEquals(200, treeGrid.getPageCacheLimit());
+    }
+
+    @Test
+    public void setPageCacheLimit_beforeAttach_sentOnceAndAfterReattach() {
+        treeGrid.setPageCacheLimit(100);
+        treeGrid.setPageCacheLimit(200);
+        MockUI ui = attach(treeGrid);
+        fakeClientResponse(ui);
+        Assert.assertEquals(1, getPageCacheLimitInvocations(ui).size());
+
+        ui.getElement().removeChild(treeGrid.getElement());
+        fakeClientResponse(ui);
+        ui.getElement().appendChild(treeGrid.getElement());
+        fakeClientResponse(ui);
+
+        List<PendingJavaScriptInvocation> invocations = getPageCacheLimitInvocations(
+                ui);
+        Assert.assertEquals(1, invocations.size());
+        Assert.assertEquals(200, invocations.get(0).getInvocation()
+                .getParameters().get(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setPageCacheLimit_negative_throws() {
+        treeGrid.setPageCacheLimit(-1);
+    }
+
+    @Test
+    public void resendParentRequestedRange_sentRangeSentAgain() {
+        MockUI ui = attachTreeGrid();
+        treeGrid.expand("a");
+        fakeClientResponse(ui);
+        String parentKey = treeGrid.getDataCommunicator().getKeyMapper()
+                .key("a");
+
+        invokeParentRange("setParentRequestedRange", parentKey);
+        fakeClientResponse(ui);
+        Assert.assertEquals(1, countChildItemUpdates(ui));
+
+        // The server does not send a range it considers sent
+        invokeParentRange("setParentRequestedRange", parentKey);
+        fakeClientResponse(ui);
+        Assert.assertEquals(0, countChildItemUpdates(ui));
+
+        invokeParentRange("resendParentRequestedRange", parentKey);
+        fakeClientResponse(ui);
+        Assert.assertEquals(1, countChildItemUpdates(ui));
+    }
+
+    private MockUI attachTreeGrid() {
+        MockUI ui = attach(treeGrid);
+        fakeClientResponse(ui);
+        ui.getInternals().dumpPendingJavaScriptInvocations();
+        return ui;
+    }
+
+    private List<PendingJavaScriptInvocation> getSettingsInvocations(
+            MockUI ui) {
+        return ui.getInternals().dumpPendingJavaScriptInvocations().stream()
+                .filter(invocation -> invocation.getInvocation()
+                        .getExpression().contains("setParentRequestSettings"))
+                .collect(Collectors.toList());
+    }
+
+    private List<PendingJavaScriptInvocation> getPageCacheLimitInvocations(
+            MockUI ui) {
+        return ui.getInternals().dumpPendingJavaScriptInvocations().stream()
+                .filter(invocation -> invocation.getInvocation()
+                        .getExpression().contains("setPageCacheLimit"))
+                .collect(Collectors.toList());
+    }
+
+    private long countChildItemUpdates(MockUI ui) {
+        return ui.getInternals().dumpPendingJavaScriptInvocations().stream()
+                .map(PendingJavaScriptInvocation::getInvocation)
+                .filter(invocation -> invocation.getExpression()
+                        .contains("$connector.set(")
+                        && invocation.getParameters().size() > 3
+                        && invocation.getParameters().get(3) != null)
+                .count();
+    }
+
+    private JsonObject state(String item, boolean expanded) {
+        JsonObject state = Json.createObject();
+        state.put("key",
+                treeGrid.getDataCommunicator().getKeyMapper().key(item));
+        state.put("expanded", expanded);
+        return state;
+    }
+
+    private void updateExpandedStates(JsonObject... states) {
+        JsonArray array = Json.createArray();
+        for (JsonObject state : states) {
+            array.set(array.length(), state);
+        }
+        invoke("updateExpandedStates", array);
+    }
+
+    private void invoke(String methodName, JsonArray array) {
+        try {
+            Method method = TreeGrid.class.getDeclaredMethod(methodName,
+                    JsonArray.class);
+            method.setAccessible(true);
+            method.invoke(treeGrid, array);
+        } catch (NoSuchMethodException | SecurityException
+                | IllegalAccessException | IllegalArgumentException
+                | InvocationTargetException e) {
+            Assert.fail(e.getMessage());
+        }
+    }
+
+    private void invokeParentRange(String methodName, String parentKey) {
+        try {
+            Method method = TreeGrid.class.getDeclaredMethod(methodName,
+                    int.class, int.class, String.class);
+            method.setAccessible(true);
+            method.invoke(treeGrid, 0, 50, parentKey);
+        } catch (NoSuchMethodException | SecurityException
+                | IllegalAccessException | IllegalArgumentException
+                | InvocationTargetException e) {
+            Assert.fail(e.getMessage());
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class IdBean {
+        private final String id;
+
+        private IdBean(String id) {
+            this.id = id;
+        }
+    }
+
+    private static class CollidingBean {
+        @Override
+        public int hashCode() {
+            return 42;
+        }
+    }
+}